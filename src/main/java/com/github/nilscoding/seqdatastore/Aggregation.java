@@ -0,0 +1,158 @@
+package com.github.nilscoding.seqdatastore;
+
+import java.util.Arrays;
+
+/**
+ * Aggregated numeric values: count, sum, min, max and an optional histogram
+ * @author NilsCoding
+ */
+public class Aggregation {
+
+    protected final double[] histogramBounds;
+    protected final long[] histogram;
+    protected long count = 0L;
+    protected long longSum = 0L;
+    protected double sum = 0.0;
+    protected long longMin = Long.MAX_VALUE;
+    protected long longMax = Long.MIN_VALUE;
+    protected double min = Double.POSITIVE_INFINITY;
+    protected double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Creates a new empty aggregation without histogram
+     */
+    public Aggregation() {
+        this(null);
+    }
+
+    /**
+     * Creates a new empty aggregation
+     * @param histogramBounds   ascending bucket bounds or null for no histogram, bucket i counts values
+     *                          below histogramBounds[i], the last bucket counts all other values
+     */
+    public Aggregation(double[] histogramBounds) {
+        this.histogramBounds = histogramBounds;
+        this.histogram = (histogramBounds != null) ? new long[histogramBounds.length + 1] : null;
+    }
+
+    /**
+     * Adds a value
+     * @param l value as long (exact for INT, LONG and DATE)
+     * @param d value as double
+     */
+    public void add(long l, double d) {
+        this.count++;
+        this.longSum += l;
+        this.sum += d;
+        if (l < this.longMin) {
+            this.longMin = l;
+        }
+        if (l > this.longMax) {
+            this.longMax = l;
+        }
+        if (d < this.min) {
+            this.min = d;
+        }
+        if (d > this.max) {
+            this.max = d;
+        }
+        if (this.histogram != null) {
+            int index = Arrays.binarySearch(this.histogramBounds, d);
+            // a value equal to a bound belongs to the bucket above the bound
+            index = (index >= 0) ? index + 1 : -index - 1;
+            this.histogram[index]++;
+        }
+    }
+
+    /**
+     * Merges another aggregation with the same histogram bounds into this one
+     * @param other other aggregation
+     */
+    public void merge(Aggregation other) {
+        this.count += other.count;
+        this.longSum += other.longSum;
+        this.sum += other.sum;
+        this.longMin = Math.min(this.longMin, other.longMin);
+        this.longMax = Math.max(this.longMax, other.longMax);
+        this.min = Math.min(this.min, other.min);
+        this.max = Math.max(this.max, other.max);
+        if ((this.histogram != null) && (other.histogram != null)) {
+            for (int i = 0; i < Math.min(this.histogram.length, other.histogram.length); i++) {
+                this.histogram[i] += other.histogram[i];
+            }
+        }
+    }
+
+    /**
+     * Returns the number of values
+     * @return  number of values
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the sum of all values as double
+     * @return  sum
+     */
+    public double getSum() {
+        return sum;
+    }
+
+    /**
+     * Returns the sum of all values as long, exact for INT, LONG and DATE unless it overflows
+     * @return  sum
+     */
+    public long getLongSum() {
+        return longSum;
+    }
+
+    /**
+     * Returns the min value as double
+     * @return  min value, positive infinity if there are no values
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * Returns the max value as double
+     * @return  max value, negative infinity if there are no values
+     */
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the min value as long, exact for INT, LONG and DATE
+     * @return  min value, Long.MAX_VALUE if there are no values
+     */
+    public long getLongMin() {
+        return longMin;
+    }
+
+    /**
+     * Returns the max value as long, exact for INT, LONG and DATE
+     * @return  max value, Long.MIN_VALUE if there are no values
+     */
+    public long getLongMax() {
+        return longMax;
+    }
+
+    /**
+     * Returns the histogram bucket counts
+     * @return  bucket counts or null for no histogram
+     */
+    public long[] getHistogram() {
+        return histogram;
+    }
+
+    /**
+     * Returns the histogram bucket bounds
+     * @return  bucket bounds or null for no histogram
+     */
+    public double[] getHistogramBounds() {
+        return histogramBounds;
+    }
+
+}
@@ -0,0 +1,192 @@
+package com.github.nilscoding.seqdatastore;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Aggregator computing count, sum, min, max and histograms of INT, LONG, DOUBLE and DATE values
+ * directly on the encoded data, without creating binary input data<br>
+ * Values are aggregated per type or, when using records, per field ordinal. The counts of all types
+ * are always available. Aggregators of different parts of the data can be merged.
+ * @author NilsCoding
+ */
+public class Aggregator {
+
+    protected static final byte[] NUMERIC_TYPES = new byte[]{ MagicMarker.INT, MagicMarker.LONG, MagicMarker.DOUBLE, MagicMarker.DATE };
+
+    protected final int fieldsPerRecord;
+    protected final double[] histogramBounds;
+    protected final Aggregation[] aggregations;
+    protected final long[] typeCounts = new long[256];
+
+    /**
+     * Creates a new aggregator, aggregating per type without histograms
+     */
+    public Aggregator() {
+        this(0, null);
+    }
+
+    /**
+     * Creates a new aggregator
+     * @param fieldsPerRecord   number of fields per record to aggregate per field ordinal, 0 to aggregate per type
+     * @param histogramBounds   ascending histogram bucket bounds or null for no histograms, see Aggregation
+     */
+    public Aggregator(int fieldsPerRecord, double[] histogramBounds) {
+        this.fieldsPerRecord = fieldsPerRecord;
+        this.histogramBounds = histogramBounds;
+        this.aggregations = new Aggregation[(fieldsPerRecord > 0) ? fieldsPerRecord : NUMERIC_TYPES.length];
+        for (int i = 0; i < this.aggregations.length; i++) {
+            this.aggregations[i] = new Aggregation(histogramBounds);
+        }
+    }
+
+    /**
+     * Aggregates all remaining data of the input
+     * @param input binary input, starting at a record boundary when aggregating per field ordinal
+     * @return  this instance
+     */
+    public Aggregator aggregate(BinaryInput input) {
+        return this.aggregate(input, 0L, Long.MAX_VALUE);
+    }
+
+    /**
+     * Aggregates the data of the input up to the given end position
+     * @param input         binary input
+     * @param firstField    index of the first field read from the input, used for the field ordinal
+     * @param endPosition   end position (exclusive)
+     * @return  this instance
+     */
+    public Aggregator aggregate(BinaryInput input, long firstField, long endPosition) {
+        long fieldIndex = firstField;
+        while ((input.getRelativePosition() < endPosition) && (input.next())) {
+            byte type = input.getLastType();
+            this.typeCounts[type & 0xFF]++;
+            int index = typeIndex(type);
+            if (index >= 0) {
+                if (this.fieldsPerRecord > 0) {
+                    index = (int)(fieldIndex % this.fieldsPerRecord);
+                }
+                this.aggregations[index].add(input.getLastLong(), input.getLastDouble());
+            }
+            fieldIndex++;
+        }
+        return this;
+    }
+
+    /**
+     * Merges another aggregator with the same settings into this one
+     * @param other other aggregator
+     */
+    public void merge(Aggregator other) {
+        for (int i = 0; i < Math.min(this.aggregations.length, other.aggregations.length); i++) {
+            this.aggregations[i].merge(other.aggregations[i]);
+        }
+        for (int i = 0; i < this.typeCounts.length; i++) {
+            this.typeCounts[i] += other.typeCounts[i];
+        }
+    }
+
+    /**
+     * Returns the aggregation of the given type, when aggregating per type
+     * @param type  INT, LONG, DOUBLE or DATE
+     * @return  aggregation or null if not aggregated per type or type is not supported
+     */
+    public Aggregation getAggregation(byte type) {
+        int index = typeIndex(type);
+        if ((this.fieldsPerRecord > 0) || (index < 0)) {
+            return null;
+        }
+        return this.aggregations[index];
+    }
+
+    /**
+     * Returns the aggregation of the given field ordinal, when aggregating per field ordinal
+     * @param ordinal   field ordinal in the record
+     * @return  aggregation or null if not aggregated per field ordinal or ordinal is invalid
+     */
+    public Aggregation getFieldAggregation(int ordinal) {
+        if ((this.fieldsPerRecord <= 0) || (ordinal < 0) || (ordinal >= this.fieldsPerRecord)) {
+            return null;
+        }
+        return this.aggregations[ordinal];
+    }
+
+    /**
+     * Returns the number of fields of the given type, delta encoded values count as LONG and DATE
+     * @param type  type
+     * @return  number of fields
+     */
+    public long getTypeCount(byte type) {
+        return this.typeCounts[type & 0xFF];
+    }
+
+    /**
+     * Aggregates a store file in parallel, splitting it at the block boundaries of the block statistics
+     * @param file              store file
+     * @param statistics        block statistics of the file
+     * @param fieldsPerRecord   number of fields per record to aggregate per field ordinal, 0 to aggregate per type
+     * @param histogramBounds   ascending histogram bucket bounds or null for no histograms
+     * @param threads           number of threads
+     * @return  merged aggregator or null if reading fails
+     */
+    public static Aggregator aggregateParallel(final File file, BlockStatistics statistics,
+            final int fieldsPerRecord, final double[] histogramBounds, int threads) {
+        // split ranges: start, end, first field
+        List<long[]> splits = new ArrayList<>();
+        long end = 0L;
+        long nextField = 0L;
+        for (BlockStatistics.Block block : statistics.getBlocks()) {
+            splits.add(new long[]{ block.getStart(), block.getEnd(), block.getFirstField() });
+            end = block.getEnd();
+            nextField = block.getFirstField() + block.getFieldCount();
+        }
+        // data written after the last finished block
+        splits.add(new long[]{ end, Long.MAX_VALUE, nextField });
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            List<Future<Aggregator>> futures = new ArrayList<>();
+            for (final long[] split : splits) {
+                futures.add(executor.submit(new Callable<Aggregator>() {
+                    @Override
+                    public Aggregator call() throws Exception {
+                        try (FileInputStream in = new FileInputStream(file)) {
+                            in.getChannel().position(split[0]);
+                            Aggregator aggregator = new Aggregator(fieldsPerRecord, histogramBounds);
+                            return aggregator.aggregate(new BinaryInput(in, split[0]), split[2], split[1]);
+                        }
+                    }
+                }));
+            }
+            Aggregator result = new Aggregator(fieldsPerRecord, histogramBounds);
+            for (Future<Aggregator> future : futures) {
+                result.merge(future.get());
+            }
+            return result;
+        } catch (Exception ex) {
+            return null;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Returns the internal index of the given numeric type
+     * @param type  type
+     * @return  index or -1 if not numeric
+     */
+    protected static int typeIndex(byte type) {
+        for (int i = 0; i < NUMERIC_TYPES.length; i++) {
+            if (NUMERIC_TYPES[i] == type) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+}
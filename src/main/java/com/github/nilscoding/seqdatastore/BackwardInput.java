@@ -0,0 +1,139 @@
+package com.github.nilscoding.seqdatastore;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Backward input, reading entries from the end of the data using the trailers written by
+ * BinaryOutput.writeTrailer() or BinaryOutput.setTrailingLength(true)<br>
+ * Reading stops at the first entry without a trailer, the channel position is not changed.
+ * @author NilsCoding
+ */
+public class BackwardInput {
+
+    protected final FileChannel channel;
+    protected long position;
+    protected byte[] markerMask = null;
+
+    /**
+     * Creates a new backward input, starting at the end of the channel
+     * @param channel   file channel
+     * @throws IOException  if the size of the channel cannot be determined
+     */
+    public BackwardInput(FileChannel channel) throws IOException {
+        this(channel, channel.size());
+    }
+
+    /**
+     * Creates a new backward input, starting at the given end position
+     * @param channel   file channel
+     * @param position  end position of the last entry to read, including its trailer
+     */
+    public BackwardInput(FileChannel channel, long position) {
+        this.channel = channel;
+        this.position = position;
+    }
+
+    /**
+     * Set a marker mask for decoding the entries, see MagicMarker.MARKER_MASK_*
+     * @param markerMask    marker mask or null for none
+     */
+    public void setMarkerMask(byte ... markerMask) {
+        this.markerMask = markerMask;
+    }
+
+    /**
+     * Returns the marker mask
+     * @return  marker mask
+     */
+    public byte[] getMarkerMask() {
+        return markerMask;
+    }
+
+    /**
+     * Returns the current position, the end of the next entry to read
+     * @return  position
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * Reads the entry before the current position
+     * @return  fields of the entry or null if there is no entry with a trailer
+     */
+    public BinaryInputData[] readPrevious() {
+        try {
+            if (this.position < 5) {
+                return null;
+            }
+            byte[] trailer = new byte[5];
+            if (!this.readAt(this.position - 5, trailer)) {
+                return null;
+            }
+            int length = ByteConversion.getInt(trailer, 1);
+            long start = this.position - 5 - length;
+            if ((trailer[0] != MagicMarker.TRAILER) || (length <= 0) || (start < 0)) {
+                return null;
+            }
+            byte[] entry = new byte[length];
+            if (!this.readAt(start, entry)) {
+                return null;
+            }
+            BinaryInput input = new BinaryInput(new ByteArrayInputStream(entry), start, length);
+            input.setMarkerMask(this.markerMask);
+            input.setReferenceChannel(this.channel);
+            List<BinaryInputData> fields = new ArrayList<>();
+            BinaryInputData data;
+            while ((data = input.read()) != null) {
+                fields.add(data);
+            }
+            this.position = start;
+            return fields.toArray(new BinaryInputData[fields.size()]);
+        } catch (Exception ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads the last entries before the current position
+     * @param n maximum number of entries
+     * @return  entries in the order of the data, can contain less than n entries
+     */
+    public List<BinaryInputData[]> readLast(int n) {
+        List<BinaryInputData[]> entries = new ArrayList<>();
+        while (entries.size() < n) {
+            BinaryInputData[] entry = this.readPrevious();
+            if (entry == null) {
+                break;
+            }
+            entries.add(entry);
+        }
+        Collections.reverse(entries);
+        return entries;
+    }
+
+    /**
+     * Internally reads data at the given position without changing the channel position
+     * @param pos   position
+     * @param data  destination, completely filled
+     * @return  true if the data was read, false if the channel ended
+     * @throws IOException  if reading fails
+     */
+    protected boolean readAt(long pos, byte[] data) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        while (buffer.hasRemaining()) {
+            int count = this.channel.read(buffer, pos + buffer.position());
+            if (count < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
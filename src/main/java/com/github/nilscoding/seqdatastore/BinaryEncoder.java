@@ -0,0 +1,499 @@
+package com.github.nilscoding.seqdatastore;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Date;
+
+/**
+ * Binary encoder, encoding data in the BinaryOutput format directly into a byte[] or ByteBuffer<br>
+ * The sizeOf methods return the exact number of bytes the encode methods write,
+ * the encode methods return the number of bytes written or -1 if the destination is too small.
+ * Delta encoding and trailers are only supported by BinaryOutput.
+ * @author NilsCoding
+ */
+public final class BinaryEncoder {
+
+    private BinaryEncoder() { }
+
+    /**
+     * Returns the encoded size of an int value
+     * @return  number of bytes
+     */
+    public static int sizeOfInt() {
+        return 5;
+    }
+
+    /**
+     * Returns the encoded size of a long value
+     * @return  number of bytes
+     */
+    public static int sizeOfLong() {
+        return 9;
+    }
+
+    /**
+     * Returns the encoded size of a double value
+     * @return  number of bytes
+     */
+    public static int sizeOfDouble() {
+        return 9;
+    }
+
+    /**
+     * Returns the encoded size of a Date value
+     * @param d Date value, can be null
+     * @return  number of bytes
+     */
+    public static int sizeOf(Date d) {
+        return (d == null) ? 1 : 9;
+    }
+
+    /**
+     * Returns the encoded size of byte data
+     * @param bytes byte data, can be null
+     * @return  number of bytes
+     */
+    public static int sizeOf(byte[] bytes) {
+        return (bytes == null) ? 1 : 5 + bytes.length;
+    }
+
+    /**
+     * Returns the encoded size of character data
+     * @param ch    character data, can be null
+     * @return  number of bytes
+     */
+    public static int sizeOf(char[] ch) {
+        return (ch == null) ? 1 : 5 + ch.length * 2;
+    }
+
+    /**
+     * Returns the encoded size of String data
+     * @param s String data, can be null
+     * @return  number of bytes
+     */
+    public static int sizeOf(String s) {
+        return (s == null) ? 1 : 5 + s.length() * 2;
+    }
+
+    /**
+     * Returns the encoded size of custom data with the int length marker
+     * @param data  data, can be null
+     * @return  number of bytes
+     */
+    public static int sizeOfCustomInt(byte[] data) {
+        return (data == null) ? 5 : 5 + data.length;
+    }
+
+    /**
+     * Returns the encoded size of custom data with the long length marker
+     * @param data  data, can be null
+     * @return  number of bytes
+     */
+    public static long sizeOfCustomLong(byte[] ... data) {
+        long size = 9;
+        if (data != null) {
+            for (byte[] d : data) {
+                if (d != null) {
+                    size += d.length;
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Encodes an int value
+     * @param dst   destination
+     * @param off   offset
+     * @param i     int value
+     * @return  number of bytes written or -1 if dst is too small
+     */
+    public static int encodeInt(byte[] dst, int off, int i) {
+        if (!fits(dst, off, 5)) {
+            return -1;
+        }
+        dst[off] = MagicMarker.INT;
+        ByteConversion.putInt(dst, off + 1, i);
+        return 5;
+    }
+
+    /**
+     * Encodes a long value
+     * @param dst   destination
+     * @param off   offset
+     * @param l     long value
+     * @return  number of bytes written or -1 if dst is too small
+     */
+    public static int encodeLong(byte[] dst, int off, long l) {
+        if (!fits(dst, off, 9)) {
+            return -1;
+        }
+        dst[off] = MagicMarker.LONG;
+        ByteConversion.putLong(dst, off + 1, l);
+        return 9;
+    }
+
+    /**
+     * Encodes a double value
+     * @param dst   destination
+     * @param off   offset
+     * @param d     double value
+     * @return  number of bytes written or -1 if dst is too small
+     */
+    public static int encodeDouble(byte[] dst, int off, double d) {
+        if (!fits(dst, off, 9)) {
+            return -1;
+        }
+        dst[off] = MagicMarker.DOUBLE;
+        ByteConversion.putDouble(dst, off + 1, d);
+        return 9;
+    }
+
+    /**
+     * Encodes a Date value
+     * @param dst   destination
+     * @param off   offset
+     * @param d     Date value, can be null
+     * @return  number of bytes written or -1 if dst is too small
+     */
+    public static int encodeDate(byte[] dst, int off, Date d) {
+        if (!fits(dst, off, sizeOf(d))) {
+            return -1;
+        }
+        if (d == null) {
+            dst[off] = MagicMarker.DATE_NULL;
+            return 1;
+        }
+        dst[off] = MagicMarker.DATE;
+        ByteConversion.putLong(dst, off + 1, d.getTime());
+        return 9;
+    }
+
+    /**
+     * Encodes byte data
+     * @param dst   destination
+     * @param off   offset
+     * @param bytes byte data, can be null
+     * @return  number of bytes written or -1 if dst is too small
+     */
+    public static int encodeBytes(byte[] dst, int off, byte[] bytes) {
+        if (!fits(dst, off, sizeOf(bytes))) {
+            return -1;
+        }
+        if (bytes == null) {
+            dst[off] = MagicMarker.BYTES_NULL;
+            return 1;
+        }
+        dst[off] = MagicMarker.BYTES;
+        ByteConversion.putInt(dst, off + 1, bytes.length);
+        System.arraycopy(bytes, 0, dst, off + 5, bytes.length);
+        return 5 + bytes.length;
+    }
+
+    /**
+     * Encodes character data
+     * @param dst   destination
+     * @param off   offset
+     * @param ch    character data, can be null
+     * @return  number of bytes written or -1 if dst is too small
+     */
+    public static int encodeChars(byte[] dst, int off, char[] ch) {
+        if (!fits(dst, off, sizeOf(ch))) {
+            return -1;
+        }
+        if (ch == null) {
+            dst[off] = MagicMarker.CHARS_NULL;
+            return 1;
+        }
+        dst[off] = MagicMarker.CHARS;
+        ByteConversion.putInt(dst, off + 1, ch.length);
+        ByteConversion.putChars(dst, off + 5, ch);
+        return 5 + ch.length * 2;
+    }
+
+    /**
+     * Encodes String data
+     * @param dst   destination
+     * @param off   offset
+     * @param s     String data, can be null
+     * @return  number of bytes written or -1 if dst is too small
+     */
+    public static int encodeString(byte[] dst, int off, String s) {
+        if (!fits(dst, off, sizeOf(s))) {
+            return -1;
+        }
+        if (s == null) {
+            dst[off] = MagicMarker.STRING_NULL;
+            return 1;
+        }
+        dst[off] = MagicMarker.STRING;
+        ByteConversion.putInt(dst, off + 1, s.length());
+        ByteConversion.putChars(dst, off + 5, s);
+        return 5 + s.length() * 2;
+    }
+
+    /**
+     * Encodes custom data with the int length marker
+     * @param dst   destination
+     * @param off   offset
+     * @param data  data, can be null
+     * @return  number of bytes written or -1 if dst is too small
+     */
+    public static int encodeCustomInt(byte[] dst, int off, byte[] data) {
+        if (!fits(dst, off, sizeOfCustomInt(data))) {
+            return -1;
+        }
+        int len = (data == null) ? 0 : data.length;
+        dst[off] = MagicMarker.CUSTOM_INT;
+        ByteConversion.putInt(dst, off + 1, len);
+        if (len > 0) {
+            System.arraycopy(data, 0, dst, off + 5, len);
+        }
+        return 5 + len;
+    }
+
+    /**
+     * Encodes custom data with the long length marker
+     * @param dst   destination
+     * @param off   offset
+     * @param data  data, can be null
+     * @return  number of bytes written or -1 if dst is too small
+     */
+    public static int encodeCustomLong(byte[] dst, int off, byte[] ... data) {
+        long size = sizeOfCustomLong(data);
+        if ((size > Integer.MAX_VALUE) || (!fits(dst, off, (int)size))) {
+            return -1;
+        }
+        dst[off] = MagicMarker.CUSTOM_LONG;
+        ByteConversion.putLong(dst, off + 1, size - 9);
+        int pos = off + 9;
+        if (data != null) {
+            for (byte[] d : data) {
+                if (d != null) {
+                    System.arraycopy(d, 0, dst, pos, d.length);
+                    pos += d.length;
+                }
+            }
+        }
+        return pos - off;
+    }
+
+    /**
+     * Encodes an int value at the position of the buffer, advancing the position
+     * @param dst   destination
+     * @param i     int value
+     * @return  number of bytes written or -1 if dst is too small
+     */
+    public static int encodeInt(ByteBuffer dst, int i) {
+        if (dst.remaining() < 5) {
+            return -1;
+        }
+        dst.put(MagicMarker.INT);
+        putInt(dst, i);
+        return 5;
+    }
+
+    /**
+     * Encodes a long value at the position of the buffer, advancing the position
+     * @param dst   destination
+     * @param l     long value
+     * @return  number of bytes written or -1 if dst is too small
+     */
+    public static int encodeLong(ByteBuffer dst, long l) {
+        if (dst.remaining() < 9) {
+            return -1;
+        }
+        dst.put(MagicMarker.LONG);
+        putLong(dst, l);
+        return 9;
+    }
+
+    /**
+     * Encodes a double value at the position of the buffer, advancing the position
+     * @param dst   destination
+     * @param d     double value
+     * @return  number of bytes written or -1 if dst is too small
+     */
+    public static int encodeDouble(ByteBuffer dst, double d) {
+        if (dst.remaining() < 9) {
+            return -1;
+        }
+        dst.put(MagicMarker.DOUBLE);
+        putLong(dst, Double.doubleToLongBits(d));
+        return 9;
+    }
+
+    /**
+     * Encodes a Date value at the position of the buffer, advancing the position
+     * @param dst   destination
+     * @param d     Date value, can be null
+     * @return  number of bytes written or -1 if dst is too small
+     */
+    public static int encodeDate(ByteBuffer dst, Date d) {
+        if (dst.remaining() < sizeOf(d)) {
+            return -1;
+        }
+        if (d == null) {
+            dst.put(MagicMarker.DATE_NULL);
+            return 1;
+        }
+        dst.put(MagicMarker.DATE);
+        putLong(dst, d.getTime());
+        return 9;
+    }
+
+    /**
+     * Encodes byte data at the position of the buffer, advancing the position
+     * @param dst   destination
+     * @param bytes byte data, can be null
+     * @return  number of bytes written or -1 if dst is too small
+     */
+    public static int encodeBytes(ByteBuffer dst, byte[] bytes) {
+        if (dst.remaining() < sizeOf(bytes)) {
+            return -1;
+        }
+        if (bytes == null) {
+            dst.put(MagicMarker.BYTES_NULL);
+            return 1;
+        }
+        dst.put(MagicMarker.BYTES);
+        putInt(dst, bytes.length);
+        dst.put(bytes);
+        return 5 + bytes.length;
+    }
+
+    /**
+     * Encodes character data at the position of the buffer, advancing the position
+     * @param dst   destination
+     * @param ch    character data, can be null
+     * @return  number of bytes written or -1 if dst is too small
+     */
+    public static int encodeChars(ByteBuffer dst, char[] ch) {
+        if (dst.remaining() < sizeOf(ch)) {
+            return -1;
+        }
+        if (ch == null) {
+            dst.put(MagicMarker.CHARS_NULL);
+            return 1;
+        }
+        if (dst.hasArray()) {
+            int count = encodeChars(dst.array(), dst.arrayOffset() + dst.position(), ch);
+            dst.position(dst.position() + count);
+            return count;
+        }
+        dst.put(MagicMarker.CHARS);
+        putInt(dst, ch.length);
+        for (char c : ch) {
+            putChar(dst, c);
+        }
+        return 5 + ch.length * 2;
+    }
+
+    /**
+     * Encodes String data at the position of the buffer, advancing the position
+     * @param dst   destination
+     * @param s     String data, can be null
+     * @return  number of bytes written or -1 if dst is too small
+     */
+    public static int encodeString(ByteBuffer dst, String s) {
+        if (dst.remaining() < sizeOf(s)) {
+            return -1;
+        }
+        if (s == null) {
+            dst.put(MagicMarker.STRING_NULL);
+            return 1;
+        }
+        if (dst.hasArray()) {
+            int count = encodeString(dst.array(), dst.arrayOffset() + dst.position(), s);
+            dst.position(dst.position() + count);
+            return count;
+        }
+        dst.put(MagicMarker.STRING);
+        putInt(dst, s.length());
+        for (int i = 0; i < s.length(); i++) {
+            putChar(dst, s.charAt(i));
+        }
+        return 5 + s.length() * 2;
+    }
+
+    /**
+     * Encodes custom data with the int length marker at the position of the buffer, advancing the position
+     * @param dst   destination
+     * @param data  data, can be null
+     * @return  number of bytes written or -1 if dst is too small
+     */
+    public static int encodeCustomInt(ByteBuffer dst, byte[] data) {
+        if (dst.remaining() < sizeOfCustomInt(data)) {
+            return -1;
+        }
+        int len = (data == null) ? 0 : data.length;
+        dst.put(MagicMarker.CUSTOM_INT);
+        putInt(dst, len);
+        if (len > 0) {
+            dst.put(data);
+        }
+        return 5 + len;
+    }
+
+    /**
+     * Encodes custom data with the long length marker at the position of the buffer, advancing the position
+     * @param dst   destination
+     * @param data  data, can be null
+     * @return  number of bytes written or -1 if dst is too small
+     */
+    public static int encodeCustomLong(ByteBuffer dst, byte[] ... data) {
+        long size = sizeOfCustomLong(data);
+        if (dst.remaining() < size) {
+            return -1;
+        }
+        dst.put(MagicMarker.CUSTOM_LONG);
+        putLong(dst, size - 9);
+        if (data != null) {
+            for (byte[] d : data) {
+                if (d != null) {
+                    dst.put(d);
+                }
+            }
+        }
+        return (int)size;
+    }
+
+    /**
+     * Checks if the given number of bytes fits into the destination at the offset
+     * @param dst   destination
+     * @param off   offset
+     * @param size  number of bytes
+     * @return  true if the bytes fit
+     */
+    protected static boolean fits(byte[] dst, int off, int size) {
+        return (dst != null) && (off >= 0) && (dst.length - off >= size);
+    }
+
+    /**
+     * Writes a big-endian int, independent of the byte order of the buffer
+     * @param dst   destination
+     * @param i     int value
+     */
+    protected static void putInt(ByteBuffer dst, int i) {
+        dst.putInt((dst.order() == ByteOrder.BIG_ENDIAN) ? i : Integer.reverseBytes(i));
+    }
+
+    /**
+     * Writes a big-endian long, independent of the byte order of the buffer
+     * @param dst   destination
+     * @param l     long value
+     */
+    protected static void putLong(ByteBuffer dst, long l) {
+        dst.putLong((dst.order() == ByteOrder.BIG_ENDIAN) ? l : Long.reverseBytes(l));
+    }
+
+    /**
+     * Writes a big-endian char, independent of the byte order of the buffer
+     * @param dst   destination
+     * @param c     char value
+     */
+    protected static void putChar(ByteBuffer dst, char c) {
+        dst.putChar((dst.order() == ByteOrder.BIG_ENDIAN) ? c : Character.reverseBytes(c));
+    }
+
+}
@@ -1,25 +1,111 @@
 package com.github.nilscoding.seqdatastore;
 
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
 import java.util.Date;
 
 /**
  * Binary input, reading data from a stream<br>
- * When using the marker mask, data might be empty and the stream must support skip(n)
+ * The input reads ahead into an internal buffer, so the stream is consumed beyond the last returned data.
+ * Short reads of the stream are handled, masked out data is skipped within the buffer, via the channel
+ * position for a FileInputStream or via skip(n) of the stream.
  * @author NilsCoding
  */
 public class BinaryInput {
-    
+
+    /**
+     * default read-ahead buffer size
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    /**
+     * minimum read-ahead buffer size, large enough for every marker and fixed-size value
+     */
+    public static final int MIN_BUFFER_SIZE = 16;
+
     protected final InputStream stream;
+    protected final byte[] buffer;
+    protected int bufferPos = 0;
+    protected int bufferLimit = 0;
+    protected FileChannel channel = null;
+    protected PositionalReader referenceReader = null;
+    protected final byte[] referenceHeader = new byte[5];
+    protected long referenceOrigin = -1L;
     protected long relativePosition = 0L;
     protected byte[] markerMask = null;
-    
+    protected boolean lazy = false;
+    protected boolean deltaLongValid = false;
+    protected long deltaLongValue = 0L;
+    protected long deltaLongDelta = 0L;
+    protected boolean deltaDateValid = false;
+    protected long deltaDateValue = 0L;
+    protected long deltaDateDelta = 0L;
+    protected byte lastType = MagicMarker.UNKNOWN;
+    protected byte lastMarker = MagicMarker.UNKNOWN;
+    protected long lastLong = 0L;
+    protected double lastDouble = 0.0;
+
     /**
      * Creates a new BinaryInput using an InputStream
      * @param inStream  input stream
      */
     public BinaryInput(InputStream inStream) {
+        this(inStream, 0L, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a new BinaryInput using an InputStream which starts at the given position of the data
+     * @param inStream  input stream
+     * @param position  position of the first byte of the input stream
+     */
+    public BinaryInput(InputStream inStream, long position) {
+        this(inStream, position, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a new BinaryInput using an InputStream which starts at the given position of the data
+     * @param inStream      input stream
+     * @param position      position of the first byte of the input stream
+     * @param bufferSize    read-ahead buffer size, at least MIN_BUFFER_SIZE
+     */
+    public BinaryInput(InputStream inStream, long position, int bufferSize) {
         this.stream = inStream;
+        this.relativePosition = position;
+        this.buffer = new byte[Math.max(MIN_BUFFER_SIZE, bufferSize)];
+        if (inStream instanceof FileInputStream) {
+            this.channel = ((FileInputStream)inStream).getChannel();
+            this.referenceReader = PositionalReaders.of(this.channel);
+        } else if (inStream instanceof PositionalReader) {
+            this.referenceReader = (PositionalReader)inStream;
+        }
+    }
+
+    /**
+     * Sets the reader for resolving references of deduplicated data, see BinaryOutput.setDeduplicationSize(int)<br>
+     * The positions of the data must be the positions of the reader. Defaults to the channel of a FileInputStream
+     * or to the stream itself if it is a PositionalReader, like the streams of OffHeapStore.
+     * @param referenceReader   positional reader or null to not resolve references
+     */
+    public void setReferenceReader(PositionalReader referenceReader) {
+        this.referenceReader = referenceReader;
+        this.referenceOrigin = -1L;
+    }
+
+    /**
+     * Returns the reader for resolving references
+     * @return  positional reader or null
+     */
+    public PositionalReader getReferenceReader() {
+        return referenceReader;
+    }
+
+    /**
+     * Sets the channel for resolving references of deduplicated data, see setReferenceReader(PositionalReader)
+     * @param referenceChannel  file channel, only read with positional reads, or null to not resolve references
+     */
+    public void setReferenceChannel(FileChannel referenceChannel) {
+        this.setReferenceReader((referenceChannel != null) ? PositionalReaders.of(referenceChannel) : null);
     }
 
     /**
@@ -37,7 +123,31 @@ public class BinaryInput {
     public byte[] getMarkerMask() {
         return markerMask;
     }
-    
+
+    /**
+     * Sets whether or not values are decoded lazily, see BinaryInputData
+     * @param lazy  true to decode values on first access, false to decode them when reading
+     */
+    public void setLazy(boolean lazy) {
+        this.lazy = lazy;
+    }
+
+    /**
+     * Returns whether or not values are decoded lazily
+     * @return  true if values are decoded on first access
+     */
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    /**
+     * Returns the read-ahead buffer size
+     * @return  buffer size in bytes
+     */
+    public int getBufferSize() {
+        return this.buffer.length;
+    }
+
     /**
      * Reads the next input data, consuming the input stream
      * @return  resulting binary input data or null if invalid
@@ -46,232 +156,405 @@ public class BinaryInput {
         BinaryInputData result = null;
         try {
             long currentPos = this.relativePosition;
-            // read marker
-            int marker = this.stream.read();
-            this.increasePosition(1);
-            if (marker == -1) {
+            // read marker, skipping trailers
+            if (!this.ensure(1)) {
                 return null;
-            } else {
-                byte bMarker = (byte)(marker & 0xFF);
-                if (bMarker == MagicMarker.INT) {
+            }
+            byte bMarker = this.buffer[this.bufferPos];
+            this.consume(1);
+            while (bMarker == MagicMarker.TRAILER) {
+                if (!this.ensure(5)) {
+                    this.consume(this.bufferLimit - this.bufferPos);
+                    return null;
+                }
+                bMarker = this.buffer[this.bufferPos + 4];
+                this.consume(5);
+                currentPos = this.relativePosition - 1;
+            }
+            this.lastMarker = bMarker;
+            if (bMarker == MagicMarker.INT) {
+                if (this.ensure(4)) {
+                    int i = ByteConversion.getInt(this.buffer, this.bufferPos);
+                    this.consume(4);
                     if (this.isMask(bMarker)) {
-                        byte[] data = new byte[4];
-                        int dataCount = this.stream.read(data);
-                        this.increasePosition(dataCount);
-                        if (dataCount == 4) {
-                            result = new BinaryInputData(currentPos, bMarker, ByteConversion.toInt(data));
-                        } else {
-                            result = new BinaryInputData(currentPos, bMarker);
-                        }
+                        result = this.number(currentPos, bMarker, i);
                     } else {
-                        long skipCount = this.stream.skip(4);
-                        this.increasePosition(skipCount);
                         result = new BinaryInputData(currentPos, bMarker, null, true);
                     }
-                } else if (bMarker == MagicMarker.LONG) {
+                } else {
+                    result = this.invalid(currentPos, bMarker);
+                }
+            } else if (bMarker == MagicMarker.LONG) {
+                // always read the value because following LONG_DELTA values depend on it
+                if (this.ensure(8)) {
+                    long l = ByteConversion.getLong(this.buffer, this.bufferPos);
+                    this.consume(8);
+                    this.deltaLongValid = true;
+                    this.deltaLongValue = l;
+                    this.deltaLongDelta = 0L;
                     if (this.isMask(bMarker)) {
-                        byte[] data = new byte[8];
-                        int dataCount = this.stream.read(data);
-                        this.increasePosition(dataCount);
-                        if (dataCount == 8) {
-                            result = new BinaryInputData(currentPos, bMarker, ByteConversion.toLong(data));
-                        } else {
-                            result = new BinaryInputData(currentPos, bMarker);
-                        }
+                        result = this.number(currentPos, bMarker, l);
                     } else {
-                        long skipCount = this.stream.skip(8);
-                        this.increasePosition(skipCount);
                         result = new BinaryInputData(currentPos, bMarker, null, true);
                     }
-                } else if (bMarker == MagicMarker.DOUBLE) {
+                } else {
+                    result = this.invalid(currentPos, bMarker);
+                }
+            } else if (bMarker == MagicMarker.LONG_DELTA) {
+                long dod = ByteConversion.fromZigZag(this.readVarLong());
+                if (this.deltaLongValid) {
+                    this.deltaLongDelta += dod;
+                    this.deltaLongValue += this.deltaLongDelta;
+                    if (this.isMask(MagicMarker.LONG)) {
+                        result = this.number(currentPos, MagicMarker.LONG, this.deltaLongValue);
+                    } else {
+                        result = new BinaryInputData(currentPos, MagicMarker.LONG, null, true);
+                    }
+                } else {
+                    result = new BinaryInputData(currentPos, MagicMarker.LONG);
+                }
+            } else if (bMarker == MagicMarker.DOUBLE) {
+                if (this.ensure(8)) {
+                    long d = ByteConversion.getLong(this.buffer, this.bufferPos);
+                    this.consume(8);
                     if (this.isMask(bMarker)) {
-                        byte[] data = new byte[8];
-                        int dataCount = this.stream.read(data);
-                        this.increasePosition(dataCount);
-                        if (dataCount == 8) {
-                            result = new BinaryInputData(currentPos, bMarker, ByteConversion.toDouble(data));
-                        } else {
-                            result = new BinaryInputData(currentPos, bMarker);
-                        }
+                        result = this.number(currentPos, bMarker, d);
                     } else {
-                        long skipCount = this.stream.skip(8);
-                        this.increasePosition(skipCount);
                         result = new BinaryInputData(currentPos, bMarker, null, true);
                     }
-                } else if (bMarker == MagicMarker.DATE) {
+                } else {
+                    result = this.invalid(currentPos, bMarker);
+                }
+            } else if (bMarker == MagicMarker.DATE) {
+                // always read the value because following DATE_DELTA values depend on it
+                if (this.ensure(8)) {
+                    long l = ByteConversion.getLong(this.buffer, this.bufferPos);
+                    this.consume(8);
+                    this.deltaDateValid = true;
+                    this.deltaDateValue = l;
+                    this.deltaDateDelta = 0L;
                     if (this.isMask(bMarker)) {
-                        byte[] data = new byte[8];
-                        int dataCount = this.stream.read(data);
-                        this.increasePosition(dataCount);
-                        if (dataCount == 8) {
-                            long l = ByteConversion.toLong(data);
-                            result = new BinaryInputData(currentPos, bMarker, new Date(l));
-                        } else {
-                            result = new BinaryInputData(currentPos, bMarker);
-                        }
+                        result = this.number(currentPos, bMarker, l);
                     } else {
-                        long skipCount = this.stream.skip(8);
-                        this.increasePosition(skipCount);
-                        result = new BinaryInputData(currentPos, bMarker, null, true);                        
+                        result = new BinaryInputData(currentPos, bMarker, null, true);
                     }
-                } else if (bMarker == MagicMarker.DATE_NULL) {
-                    result = new BinaryInputData(currentPos, bMarker, null, true);
-                } else if (bMarker == MagicMarker.BYTES) {
-                    byte[] data = new byte[4];
-                    int dataCount = this.stream.read(data);
-                    this.increasePosition(dataCount);
-                    if (dataCount == 4) {
-                        int byteLen = ByteConversion.toInt(data);
-                        if (this.isMask(bMarker)) {
-                            byte[] data2 = new byte[byteLen];
-                            int data2Count = this.stream.read(data2);
-                            this.increasePosition(data2Count);
-                            if (data2Count == byteLen) {
-                                result = new BinaryInputData(currentPos, bMarker, data2);
-                            } else {
-                                result = new BinaryInputData(currentPos, bMarker);
-                            }
-                        } else {
-                            long skipCount = this.stream.skip(byteLen);
-                            this.increasePosition(skipCount);
-                            result = new BinaryInputData(currentPos, bMarker, null, true);                    
-                        }
+                } else {
+                    result = this.invalid(currentPos, bMarker);
+                }
+            } else if (bMarker == MagicMarker.DATE_DELTA) {
+                long dod = ByteConversion.fromZigZag(this.readVarLong());
+                if (this.deltaDateValid) {
+                    this.deltaDateDelta += dod;
+                    this.deltaDateValue += this.deltaDateDelta;
+                    if (this.isMask(MagicMarker.DATE)) {
+                        result = this.number(currentPos, MagicMarker.DATE, this.deltaDateValue);
                     } else {
-                        result = new BinaryInputData(currentPos, bMarker);
+                        result = new BinaryInputData(currentPos, MagicMarker.DATE, null, true);
                     }
-                } else if (bMarker == MagicMarker.BYTES_NULL) {
-                    result = new BinaryInputData(currentPos, bMarker, null, true);
-                } else if (bMarker == MagicMarker.CHARS) {
-                    byte[] data = new byte[4];
-                    int dataCount = this.stream.read(data);
-                    this.increasePosition(dataCount);
-                    if (dataCount == 4) {
-                        int charLen = ByteConversion.toInt(data);
-                        if (this.isMask(bMarker)) {
-                            char[] ch = new char[charLen];
-                            byte[] buffer = new byte[2];
-                            for (int index = 0; index < charLen; index++) {
-                                int byteCount = this.stream.read(buffer);
-                                this.increasePosition(byteCount);
-                                if (byteCount == 2) {
-                                    ch[index] = (char)ByteConversion.toShort(data);
-                                }
-                            }
-                            result = new BinaryInputData(currentPos, bMarker, ch);
-                        } else {
-                            long skipCount = this.stream.skip(charLen * 2);
-                            this.increasePosition(skipCount);
-                            result = new BinaryInputData(currentPos, bMarker, null, true);
-                        }
+                } else {
+                    result = new BinaryInputData(currentPos, MagicMarker.DATE);
+                }
+            } else if (bMarker == MagicMarker.DATE_NULL) {
+                result = new BinaryInputData(currentPos, bMarker, null, true);
+            } else if (bMarker == MagicMarker.BYTES) {
+                int byteLen = this.readLength();
+                if (byteLen < 0) {
+                    result = this.invalid(currentPos, bMarker);
+                } else if (this.isMask(bMarker) && this.isLazyPayload()) {
+                    result = this.payload(currentPos, bMarker, byteLen);
+                } else if (this.isMask(bMarker)) {
+                    byte[] data = new byte[byteLen];
+                    if (this.readFully(data, 0, byteLen) == byteLen) {
+                        result = new BinaryInputData(currentPos, bMarker, data);
                     } else {
                         result = new BinaryInputData(currentPos, bMarker);
                     }
-                } else if (bMarker == MagicMarker.CHARS_NULL) {
+                } else {
+                    this.skipBytes(byteLen);
                     result = new BinaryInputData(currentPos, bMarker, null, true);
-                } else if (bMarker == MagicMarker.STRING) {
-                    byte[] data = new byte[4];
-                    int dataCount = this.stream.read(data);
-                    this.increasePosition(dataCount);
-                    if (dataCount == 4) {
-                        int charLen = ByteConversion.toInt(data);
-                        if (this.isMask(bMarker)) {
-                            char[] ch = new char[charLen];
-                            byte[] buffer = new byte[2];
-                            for (int index = 0; index < charLen; index++) {
-                                int byteCount = this.stream.read(buffer);
-                                this.increasePosition(byteCount);
-                                if (byteCount == 2) {
-                                    ch[index] = (char)ByteConversion.toShort(buffer);
-                                }
-                            }
-                            result = new BinaryInputData(currentPos, bMarker, new String(ch));
-                        } else {
-                            long skipCount = this.stream.skip(charLen * 2);
-                            this.increasePosition(skipCount);
-                            result = new BinaryInputData(currentPos, bMarker, null, true);
-                        }
+                }
+            } else if (bMarker == MagicMarker.BYTES_NULL) {
+                result = new BinaryInputData(currentPos, bMarker, null, true);
+            } else if ((bMarker == MagicMarker.CHARS) || (bMarker == MagicMarker.STRING)) {
+                int charLen = this.readLength();
+                if ((charLen < 0) || (charLen > Integer.MAX_VALUE / 2)) {
+                    result = this.invalid(currentPos, bMarker);
+                } else if (this.isMask(bMarker) && this.isLazyPayload()) {
+                    result = this.payload(currentPos, bMarker, charLen * 2);
+                } else if (this.isMask(bMarker) && this.lazy) {
+                    byte[] raw = new byte[charLen * 2];
+                    if (this.readFully(raw, 0, raw.length) == raw.length) {
+                        result = BinaryInputData.ofRaw(currentPos, bMarker, raw);
                     } else {
                         result = new BinaryInputData(currentPos, bMarker);
                     }
-                } else if (bMarker == MagicMarker.STRING_NULL) {
+                } else if (this.isMask(bMarker)) {
+                    char[] ch = this.readChars(charLen);
+                    if (ch == null) {
+                        result = new BinaryInputData(currentPos, bMarker);
+                    } else if (bMarker == MagicMarker.STRING) {
+                        result = new BinaryInputData(currentPos, bMarker, new String(ch));
+                    } else {
+                        result = new BinaryInputData(currentPos, bMarker, ch);
+                    }
+                } else {
+                    this.skipBytes(charLen * 2L);
                     result = new BinaryInputData(currentPos, bMarker, null, true);
-                } else if (bMarker == MagicMarker.CUSTOM_INT) {
-                    byte[] data = new byte[4];
-                    int dataCount = this.stream.read(data);
-                    this.increasePosition(dataCount);
-                    if (dataCount == 4) {
-                        int customLen = ByteConversion.toInt(data);
-                        if (customLen <= 0) {
-                            result = new BinaryInputData(currentPos, bMarker, new byte[0]);
-                        } else {
-                            if (this.isMask(bMarker)) {
-                                byte[] buffer = new byte[customLen];
-                                int countBuffer = this.stream.read(buffer);
-                                this.increasePosition(countBuffer);
-                                if (countBuffer == customLen) {
-                                    result = new BinaryInputData(currentPos, bMarker, buffer);
-                                } else {
-                                    result = new BinaryInputData(currentPos, bMarker, new byte[0]);
-                                }
+                }
+            } else if (bMarker == MagicMarker.CHARS_NULL) {
+                result = new BinaryInputData(currentPos, bMarker, null, true);
+            } else if (bMarker == MagicMarker.STRING_NULL) {
+                result = new BinaryInputData(currentPos, bMarker, null, true);
+            } else if (bMarker == MagicMarker.CUSTOM_INT) {
+                if (this.ensure(4)) {
+                    int customLen = ByteConversion.getInt(this.buffer, this.bufferPos);
+                    this.consume(4);
+                    if (customLen <= 0) {
+                        result = new BinaryInputData(currentPos, bMarker, new byte[0]);
+                    } else {
+                        if (this.isMask(bMarker) && this.isLazyPayload()) {
+                            result = this.payload(currentPos, bMarker, customLen);
+                        } else if (this.isMask(bMarker)) {
+                            byte[] data = new byte[customLen];
+                            if (this.readFully(data, 0, customLen) == customLen) {
+                                result = new BinaryInputData(currentPos, bMarker, data);
                             } else {
-                                long skipCount = this.stream.skip(customLen);
-                                this.increasePosition(skipCount);
-                                result = new BinaryInputData(currentPos, bMarker, null, true);
+                                result = new BinaryInputData(currentPos, bMarker, new byte[0]);
                             }
+                        } else {
+                            this.skipBytes(customLen);
+                            result = new BinaryInputData(currentPos, bMarker, null, true);
                         }
-                    } else {
-                        result = new BinaryInputData(currentPos, bMarker, new byte[0]);
                     }
-                } else if (bMarker == MagicMarker.CUSTOM_LONG) {
-                    byte[] data = new byte[8];
-                    int dataCount = this.stream.read(data);
-                    this.increasePosition(dataCount);
-                    if (dataCount == 8) {
-                        long customLen = ByteConversion.toLong(data);
-                        if (customLen <= 0) {
-                            result = new BinaryInputData(currentPos, bMarker, new byte[0]);
+                } else {
+                    this.consume(this.bufferLimit - this.bufferPos);
+                    result = new BinaryInputData(currentPos, bMarker, new byte[0]);
+                }
+            } else if (bMarker == MagicMarker.CUSTOM_LONG) {
+                if (this.ensure(8)) {
+                    long customLen = ByteConversion.getLong(this.buffer, this.bufferPos);
+                    this.consume(8);
+                    if (customLen <= 0) {
+                        result = new BinaryInputData(currentPos, bMarker, new byte[0]);
+                    } else {
+                        // this could be done the same way than reading custom int
+                        // but there is probably too many data, so limit the reading here
+                        int maxRead = 0;
+                        if (customLen < Integer.MAX_VALUE) {
+                            maxRead = (int)customLen;
                         } else {
-                            // this could be done the same way than reading custom int
-                            // but there is probably too many data, so limit the reading here
-                            int maxRead = 0;
-                            if (customLen < Integer.MAX_VALUE) {
-                                maxRead = (int)customLen;
-                            } else {
-                                maxRead = Integer.MAX_VALUE;
-                            }
-                            if (this.isMask(bMarker)) {
-                                byte[] buffer = new byte[maxRead];
-                                int countBuffer = this.stream.read(buffer);
-                                this.increasePosition(countBuffer);
-                                if (countBuffer == maxRead) {
-                                    result = new BinaryInputData(currentPos, bMarker, buffer);
-                                } else {
-                                    result = new BinaryInputData(currentPos, bMarker, new byte[0]);
-                                }
+                            maxRead = Integer.MAX_VALUE;
+                        }
+                        if (this.isMask(bMarker) && this.isLazyPayload()) {
+                            result = this.payload(currentPos, bMarker, maxRead);
+                        } else if (this.isMask(bMarker)) {
+                            byte[] data = new byte[maxRead];
+                            if (this.readFully(data, 0, maxRead) == maxRead) {
+                                result = new BinaryInputData(currentPos, bMarker, data);
                             } else {
-                                long skipCount = this.stream.skip(maxRead);
-                                this.increasePosition(skipCount);
-                                result = new BinaryInputData(currentPos, bMarker, null, true);   
-                            }
-                            long skip = customLen - maxRead;
-                            if (skip > 0) {
-                                long countSkip = this.stream.skip(skip);
-                                this.increasePosition(countSkip);
+                                result = new BinaryInputData(currentPos, bMarker, new byte[0]);
                             }
+                        } else {
+                            this.skipBytes(maxRead);
+                            result = new BinaryInputData(currentPos, bMarker, null, true);
                         }
-                    } else {
-                        result = new BinaryInputData(currentPos, bMarker, new byte[0]);
-                    }                    
+                        long skip = customLen - maxRead;
+                        if (skip > 0) {
+                            this.skipBytes(skip);
+                        }
+                    }
                 } else {
-                    // unsupported marker
-                    result = new BinaryInputData(currentPos, MagicMarker.UNKNOWN);
+                    this.consume(this.bufferLimit - this.bufferPos);
+                    result = new BinaryInputData(currentPos, bMarker, new byte[0]);
                 }
+            } else if (bMarker == MagicMarker.REFERENCE) {
+                long distance = this.readVarLong();
+                long len = this.readVarLong();
+                result = this.readReference(currentPos, currentPos - distance, len);
+            } else {
+                // unsupported marker
+                result = new BinaryInputData(currentPos, MagicMarker.UNKNOWN);
             }
         } catch (Exception ex) {
         }
         return result;
     }
 
+    /**
+     * Reads the next field without creating binary input data, ignoring the marker mask<br>
+     * INT, LONG, DOUBLE and DATE values are available via getLastLong() and getLastDouble(),
+     * all other payloads are skipped. Delta encoded values are reported as LONG and DATE.
+     * @return  true if a field was read, false if the input ended or the data is invalid
+     */
+    public boolean next() {
+        try {
+            if (!this.ensure(1)) {
+                return false;
+            }
+            byte bMarker = this.buffer[this.bufferPos];
+            this.consume(1);
+            while (bMarker == MagicMarker.TRAILER) {
+                if (!this.ensure(5)) {
+                    this.consume(this.bufferLimit - this.bufferPos);
+                    return false;
+                }
+                bMarker = this.buffer[this.bufferPos + 4];
+                this.consume(5);
+            }
+            this.lastType = bMarker;
+            this.lastMarker = bMarker;
+            if (bMarker == MagicMarker.INT) {
+                if (!this.ensure(4)) {
+                    return false;
+                }
+                this.lastLong = ByteConversion.getInt(this.buffer, this.bufferPos);
+                this.lastDouble = this.lastLong;
+                this.consume(4);
+            } else if ((bMarker == MagicMarker.LONG) || (bMarker == MagicMarker.DATE)) {
+                if (!this.ensure(8)) {
+                    return false;
+                }
+                this.lastLong = ByteConversion.getLong(this.buffer, this.bufferPos);
+                this.lastDouble = this.lastLong;
+                this.consume(8);
+                if (bMarker == MagicMarker.LONG) {
+                    this.deltaLongValid = true;
+                    this.deltaLongValue = this.lastLong;
+                    this.deltaLongDelta = 0L;
+                } else {
+                    this.deltaDateValid = true;
+                    this.deltaDateValue = this.lastLong;
+                    this.deltaDateDelta = 0L;
+                }
+            } else if (bMarker == MagicMarker.LONG_DELTA) {
+                long dod = ByteConversion.fromZigZag(this.readVarLong());
+                if (!this.deltaLongValid) {
+                    return false;
+                }
+                this.deltaLongDelta += dod;
+                this.deltaLongValue += this.deltaLongDelta;
+                this.lastType = MagicMarker.LONG;
+                this.lastLong = this.deltaLongValue;
+                this.lastDouble = this.lastLong;
+            } else if (bMarker == MagicMarker.DATE_DELTA) {
+                long dod = ByteConversion.fromZigZag(this.readVarLong());
+                if (!this.deltaDateValid) {
+                    return false;
+                }
+                this.deltaDateDelta += dod;
+                this.deltaDateValue += this.deltaDateDelta;
+                this.lastType = MagicMarker.DATE;
+                this.lastLong = this.deltaDateValue;
+                this.lastDouble = this.lastLong;
+            } else if (bMarker == MagicMarker.DOUBLE) {
+                if (!this.ensure(8)) {
+                    return false;
+                }
+                this.lastDouble = ByteConversion.getDouble(this.buffer, this.bufferPos);
+                this.lastLong = (long)this.lastDouble;
+                this.consume(8);
+            } else if ((bMarker == MagicMarker.BYTES) || (bMarker == MagicMarker.CUSTOM_INT)) {
+                if (!this.ensure(4)) {
+                    return false;
+                }
+                int len = ByteConversion.getInt(this.buffer, this.bufferPos);
+                this.consume(4);
+                // a CUSTOM_INT length of 0 or less is read as empty data, a negative BYTES length is invalid
+                if (((len < 0) && (bMarker == MagicMarker.BYTES)) || ((len > 0) && (this.skipBytes(len) < len))) {
+                    return false;
+                }
+            } else if ((bMarker == MagicMarker.CHARS) || (bMarker == MagicMarker.STRING)) {
+                int len = this.readLength();
+                if ((len < 0) || ((len > 0) && (this.skipBytes(len * 2L) < len * 2L))) {
+                    return false;
+                }
+            } else if (bMarker == MagicMarker.CUSTOM_LONG) {
+                if (!this.ensure(8)) {
+                    return false;
+                }
+                long len = ByteConversion.getLong(this.buffer, this.bufferPos);
+                this.consume(8);
+                if ((len > 0) && (this.skipBytes(len) < len)) {
+                    return false;
+                }
+            } else if (bMarker == MagicMarker.REFERENCE) {
+                long origin = this.relativePosition - 1 - this.readVarLong();
+                this.readVarLong();
+                this.lastType = this.referenceType(origin);
+            } else if ((bMarker != MagicMarker.DATE_NULL) && (bMarker != MagicMarker.BYTES_NULL)
+                    && (bMarker != MagicMarker.CHARS_NULL) && (bMarker != MagicMarker.STRING_NULL)) {
+                // unsupported marker
+                this.lastType = MagicMarker.UNKNOWN;
+                return false;
+            }
+            return true;
+        } catch (Exception ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the type of the field read by next()
+     * @return  type, LONG and DATE for delta encoded values
+     */
+    public byte getLastType() {
+        return this.lastType;
+    }
+
+    /**
+     * Returns the marker of the field read by read() or next() as stored, e.g. LONG_DELTA, DATE_DELTA or REFERENCE
+     * @return  marker
+     */
+    public byte getLastMarker() {
+        return this.lastMarker;
+    }
+
+    /**
+     * Returns the value of the INT, LONG, DATE (milliseconds) or DOUBLE (truncated) field read by next()
+     * @return  value, undefined for other types
+     */
+    public long getLastLong() {
+        return this.lastLong;
+    }
+
+    /**
+     * Returns the value of the INT, LONG, DATE (milliseconds) or DOUBLE field read by next() as double
+     * @return  value, undefined for other types
+     */
+    public double getLastDouble() {
+        return this.lastDouble;
+    }
+
+    /**
+     * Skips the given number of bytes, consuming the input stream
+     * @param count number of bytes to skip
+     * @return  number of bytes skipped
+     */
+    public long skip(long count) {
+        long skipped = 0L;
+        try {
+            skipped = this.skipBytes(count);
+        } catch (Exception ex) {
+        }
+        // delta encoded values after the skipped data cannot be decoded until the next full value
+        this.deltaLongValid = false;
+        this.deltaDateValid = false;
+        return skipped;
+    }
+
+    /**
+     * Discards the read-ahead buffer and the delta state, for streams which are repositioned by the caller
+     * @param position  position of the next byte of the input stream
+     */
+    public void reset(long position) {
+        this.bufferPos = 0;
+        this.bufferLimit = 0;
+        this.relativePosition = position;
+        this.deltaLongValid = false;
+        this.deltaDateValid = false;
+        this.referenceOrigin = -1L;
+    }
+
     /**
      * Returns the relative input stream position
      * @return  relative input stream position
@@ -279,7 +562,311 @@ public class BinaryInput {
     public long getRelativePosition() {
         return this.relativePosition;
     }
-    
+
+    /**
+     * Internally makes sure that at least the given number of bytes is available in the buffer,
+     * compacting the buffer and reading from the stream until enough bytes are available or the stream ends
+     * @param count number of bytes, at most the buffer size
+     * @return  true if the bytes are available, false if the stream ended before
+     * @throws IOException  if reading fails
+     */
+    protected boolean ensure(int count) throws IOException {
+        if (this.bufferLimit - this.bufferPos >= count) {
+            return true;
+        }
+        if (this.bufferPos > 0) {
+            System.arraycopy(this.buffer, this.bufferPos, this.buffer, 0, this.bufferLimit - this.bufferPos);
+            this.bufferLimit -= this.bufferPos;
+            this.bufferPos = 0;
+        }
+        while (this.bufferLimit < count) {
+            int readCount = this.stream.read(this.buffer, this.bufferLimit, this.buffer.length - this.bufferLimit);
+            if (readCount < 0) {
+                return false;
+            }
+            this.bufferLimit += readCount;
+        }
+        return true;
+    }
+
+    /**
+     * Internally consumes bytes of the buffer
+     * @param count number of bytes, at most the available bytes
+     */
+    protected void consume(int count) {
+        this.bufferPos += count;
+        this.increasePosition(count);
+    }
+
+    /**
+     * Internally creates invalid data, consuming the remaining bytes of a truncated input
+     * @param position  position
+     * @param marker    marker
+     * @return  invalid binary input data
+     */
+    protected BinaryInputData invalid(long position, byte marker) {
+        this.consume(this.bufferLimit - this.bufferPos);
+        return new BinaryInputData(position, marker);
+    }
+
+    /**
+     * Internally reads a 4-byte length
+     * @return  length or -1 if the stream ended
+     * @throws IOException  if reading fails
+     */
+    protected int readLength() throws IOException {
+        if (!this.ensure(4)) {
+            return -1;
+        }
+        int len = ByteConversion.getInt(this.buffer, this.bufferPos);
+        this.consume(4);
+        return len;
+    }
+
+    /**
+     * Internally reads the given number of bytes, using the buffer first and the stream after that
+     * @param data  destination
+     * @param off   offset in destination
+     * @param len   number of bytes
+     * @return  number of bytes read, less than len if the stream ended
+     * @throws IOException  if reading fails
+     */
+    protected int readFully(byte[] data, int off, int len) throws IOException {
+        int count = Math.min(len, this.bufferLimit - this.bufferPos);
+        System.arraycopy(this.buffer, this.bufferPos, data, off, count);
+        this.consume(count);
+        if ((len - count) < this.buffer.length) {
+            // refill the buffer for the rest, this also reads ahead for the next data
+            if ((count < len) && (!this.ensure(len - count))) {
+                int rest = this.bufferLimit - this.bufferPos;
+                System.arraycopy(this.buffer, this.bufferPos, data, off + count, rest);
+                this.consume(rest);
+                return count + rest;
+            }
+            System.arraycopy(this.buffer, this.bufferPos, data, off + count, len - count);
+            this.consume(len - count);
+            return len;
+        }
+        // large data, read directly without copying through the buffer
+        while (count < len) {
+            int readCount = this.stream.read(data, off + count, len - count);
+            if (readCount < 0) {
+                break;
+            }
+            count += readCount;
+            this.increasePosition(readCount);
+        }
+        return count;
+    }
+
+    /**
+     * Internally reads the given number of chars with 2 bytes each
+     * @param charLen   number of chars
+     * @return  chars or null if the stream ended
+     * @throws IOException  if reading fails
+     */
+    protected char[] readChars(int charLen) throws IOException {
+        char[] ch = new char[charLen];
+        int byteLen = charLen * 2;
+        if (byteLen <= this.buffer.length) {
+            // decode directly from the buffer
+            if (!this.ensure(byteLen)) {
+                this.consume(this.bufferLimit - this.bufferPos);
+                return null;
+            }
+            ByteConversion.getChars(this.buffer, this.bufferPos, ch);
+            this.consume(byteLen);
+        } else {
+            byte[] data = new byte[byteLen];
+            if (this.readFully(data, 0, byteLen) != byteLen) {
+                return null;
+            }
+            ByteConversion.getChars(data, 0, ch);
+        }
+        return ch;
+    }
+
+    /**
+     * Internally skips the given number of bytes, using the buffer first, then the channel position
+     * for a FileInputStream or skip(n) of the stream
+     * @param count number of bytes
+     * @return  number of bytes skipped, less than count if the stream ended
+     * @throws IOException  if skipping fails
+     */
+    protected long skipBytes(long count) throws IOException {
+        int inBuffer = (int)Math.min(count, this.bufferLimit - this.bufferPos);
+        this.consume(inBuffer);
+        long skipped = inBuffer;
+        if (skipped < count) {
+            // buffer is empty now
+            this.bufferPos = 0;
+            this.bufferLimit = 0;
+            if (this.channel != null) {
+                long channelPos = this.channel.position();
+                long channelSkip = Math.max(0L, Math.min(count - skipped, this.channel.size() - channelPos));
+                this.channel.position(channelPos + channelSkip);
+                skipped += channelSkip;
+                this.increasePosition(channelSkip);
+            } else {
+                while (skipped < count) {
+                    long skipCount = this.stream.skip(count - skipped);
+                    if (skipCount <= 0) {
+                        // skip(n) may return 0 without reaching the end, so check with a single read
+                        if (this.stream.read() == -1) {
+                            break;
+                        }
+                        skipCount = 1;
+                    }
+                    skipped += skipCount;
+                    this.increasePosition(skipCount);
+                }
+            }
+        }
+        return skipped;
+    }
+
+    /**
+     * Internally reads a varint as written by ByteConversion.fromVarLong(long)
+     * @return  long value
+     * @throws IOException  if reading fails or the stream ends
+     */
+    protected long readVarLong() throws IOException {
+        long l = 0L;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (!this.ensure(1)) {
+                throw new IOException("unexpected end of stream");
+            }
+            int b = this.buffer[this.bufferPos];
+            this.consume(1);
+            l |= (long)(b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return l;
+            }
+        }
+        throw new IOException("invalid varint");
+    }
+
+    /**
+     * Internally creates binary input data of an INT, LONG, DOUBLE or DATE value, lazy or decoded
+     * @param position  position
+     * @param type      type
+     * @param bits      value, the raw long bits for DOUBLE and the milliseconds for DATE
+     * @return  binary input data
+     */
+    protected BinaryInputData number(long position, byte type, long bits) {
+        if (this.lazy) {
+            return BinaryInputData.ofBits(position, type, bits);
+        }
+        if (type == MagicMarker.INT) {
+            return new BinaryInputData(position, type, (int)bits);
+        } else if (type == MagicMarker.DOUBLE) {
+            return new BinaryInputData(position, type, Double.longBitsToDouble(bits));
+        } else if (type == MagicMarker.DATE) {
+            return new BinaryInputData(position, type, new Date(bits));
+        }
+        return new BinaryInputData(position, type, bits);
+    }
+
+    /**
+     * Internally checks if payloads are read lazily, which needs a positional reader
+     * @return  true if payloads are read on first access
+     */
+    protected boolean isLazyPayload() {
+        return this.lazy && (this.referenceReader != null);
+    }
+
+    /**
+     * Internally skips a payload and creates lazy data, which reads the payload with the reference reader on first access
+     * @param position  position of the field
+     * @param type      type
+     * @param len       payload length in bytes
+     * @return  binary input data, invalid if the input ended within the payload
+     * @throws IOException  if skipping fails
+     */
+    protected BinaryInputData payload(long position, byte type, int len) throws IOException {
+        long payloadPosition = this.relativePosition;
+        if (this.skipBytes(len) < len) {
+            return new BinaryInputData(position, type);
+        }
+        return BinaryInputData.ofPayload(position, type, this.referenceReader, payloadPosition, len);
+    }
+
+    /**
+     * Internally reads the original field of a reference with positional reads of the reference reader
+     * @param position  position of the reference
+     * @param origin    position of the original field
+     * @param len       payload length
+     * @return  binary input data with the type of the original field, positioned at the reference
+     * @throws IOException  if reading fails
+     */
+    protected BinaryInputData readReference(long position, long origin, long len) throws IOException {
+        if ((this.referenceReader == null) || (origin < 0) || (origin >= position) || (len > Integer.MAX_VALUE)) {
+            return new BinaryInputData(position, MagicMarker.UNKNOWN);
+        }
+        if (!this.readReferenceHeader(origin)) {
+            return new BinaryInputData(position, MagicMarker.UNKNOWN);
+        }
+        byte marker = this.referenceHeader[0];
+        if (((marker != MagicMarker.BYTES) && (marker != MagicMarker.CUSTOM_INT))
+                || (ByteConversion.getInt(this.referenceHeader, 1) != len)) {
+            return new BinaryInputData(position, MagicMarker.UNKNOWN);
+        }
+        if (!this.isMask(marker)) {
+            return new BinaryInputData(position, marker, null, true);
+        }
+        if (this.lazy) {
+            return BinaryInputData.ofPayload(position, marker, this.referenceReader, origin + 5, (int)len);
+        }
+        byte[] data = new byte[(int)len];
+        if (!this.readAt(origin + 5, data)) {
+            return new BinaryInputData(position, marker);
+        }
+        return new BinaryInputData(position, marker, data);
+    }
+
+    /**
+     * Internally returns the type of the original field of a reference
+     * @param origin    position of the original field
+     * @return  type or UNKNOWN if it cannot be read
+     * @throws IOException  if reading fails
+     */
+    protected byte referenceType(long origin) throws IOException {
+        if ((this.referenceReader == null) || (origin < 0) || (!this.readReferenceHeader(origin))) {
+            return MagicMarker.UNKNOWN;
+        }
+        return this.referenceHeader[0];
+    }
+
+    /**
+     * Internally reads the marker and length of an original field into the reference header,
+     * keeping the header of the last origin because repeated payloads mostly refer to the same field
+     * @param origin    position of the original field
+     * @return  true if the header was read, false if the data ended
+     * @throws IOException  if reading fails
+     */
+    protected boolean readReferenceHeader(long origin) throws IOException {
+        if (origin == this.referenceOrigin) {
+            return true;
+        }
+        this.referenceOrigin = -1L;
+        if (!this.readAt(origin, this.referenceHeader)) {
+            return false;
+        }
+        this.referenceOrigin = origin;
+        return true;
+    }
+
+    /**
+     * Internally reads data of the reference reader
+     * @param pos   position
+     * @param data  destination, completely filled
+     * @return  true if the data was read, false if the data ended
+     * @throws IOException  if reading fails
+     */
+    protected boolean readAt(long pos, byte[] data) throws IOException {
+        return this.referenceReader.read(pos, data, 0, data.length) == data.length;
+    }
+
     /**
      * Internally increases the input stream position value
      * @param count     number of bytes to increase position
@@ -289,7 +876,7 @@ public class BinaryInput {
             this.relativePosition += count;
         }
     }
-    
+
     /**
      * Checks if the given marker matches the marker mask
      * @param marker    marker to check
@@ -309,5 +896,5 @@ public class BinaryInput {
         }
         return false;
     }
-    
+
 }
@@ -1,7 +1,16 @@
 package com.github.nilscoding.seqdatastore;
 
+import java.io.IOException;
+import java.util.Date;
+
 /**
- * Binary input data
+ * Binary input data<br>
+ * Data read by a lazy BinaryInput keeps INT, LONG, DOUBLE and DATE values as primitive bits, the value object is
+ * created on the first call of getValue(). BYTES, CHARS, STRING, CUSTOM_INT and CUSTOM_LONG payloads are read
+ * on first access with the positional reader of the input (see BinaryInput.setReferenceReader(...)), so they must be
+ * accessed while that reader is open. Without a reader, CHARS and STRING values are kept as encoded bytes and
+ * the other payloads are copied when reading. The typed get...Value() methods work for both lazy and decoded data,
+ * the numeric ones without creating a value object.
  * @author NilsCoding
  */
 public class BinaryInputData {
@@ -10,6 +19,12 @@ public class BinaryInputData {
     protected Object value;
     protected boolean valid;
     protected long position = -1L;
+    protected boolean lazy = false;
+    protected long bits = 0L;
+    protected byte[] raw = null;
+    protected PositionalReader reader = null;
+    protected long payloadPosition = -1L;
+    protected int payloadLength = 0;
 
 //    public BinaryInputData(byte type) {
 //        this.type = type;
@@ -68,6 +83,54 @@ public class BinaryInputData {
 //        this.valid = valid;
 //    }
 
+    /**
+     * Creates a new valid, lazy binary input data object of an INT, LONG, DOUBLE or DATE value
+     * @param position  position
+     * @param type      type
+     * @param bits      value, the raw long bits for DOUBLE and the milliseconds for DATE
+     * @return  binary input data
+     */
+    protected static BinaryInputData ofBits(long position, byte type, long bits) {
+        BinaryInputData data = new BinaryInputData(position, type, null);
+        data.lazy = true;
+        data.bits = bits;
+        return data;
+    }
+
+    /**
+     * Creates a new valid, lazy binary input data object of a CHARS or STRING value
+     * @param position  position
+     * @param type      type
+     * @param raw       encoded chars with 2 bytes each, not copied
+     * @return  binary input data
+     */
+    protected static BinaryInputData ofRaw(long position, byte type, byte[] raw) {
+        BinaryInputData data = new BinaryInputData(position, type, null);
+        data.lazy = true;
+        data.raw = raw;
+        return data;
+    }
+
+    /**
+     * Creates a new valid, lazy binary input data object of a BYTES, CHARS, STRING, CUSTOM_INT or CUSTOM_LONG value
+     * which is read with a positional reader on first access
+     * @param position          position
+     * @param type              type
+     * @param reader            positional reader of the data
+     * @param payloadPosition   position of the payload
+     * @param payloadLength     length of the payload in bytes
+     * @return  binary input data
+     */
+    protected static BinaryInputData ofPayload(long position, byte type, PositionalReader reader,
+            long payloadPosition, int payloadLength) {
+        BinaryInputData data = new BinaryInputData(position, type, null);
+        data.lazy = true;
+        data.reader = reader;
+        data.payloadPosition = payloadPosition;
+        data.payloadLength = payloadLength;
+        return data;
+    }
+
     /**
      * Returns the position value
      * @return  position value
@@ -101,10 +164,17 @@ public class BinaryInputData {
     }
 
     /**
-     * Returns the value, can be null
+     * Returns the value, can be null<br>
+     * If the payload of lazy data cannot be read, the value is null and the data becomes invalid.
      * @return  value, can be null
      */
     public Object getValue() {
+        if (this.lazy) {
+            this.value = this.decode();
+            this.lazy = false;
+            this.raw = null;
+            this.reader = null;
+        }
         return value;
     }
 
@@ -114,6 +184,161 @@ public class BinaryInputData {
      */
     public void setValue(Object value) {
         this.value = value;
+        this.lazy = false;
+        this.raw = null;
+        this.reader = null;
+    }
+
+    /**
+     * Returns the value of INT, LONG, DATE (milliseconds) or DOUBLE (truncated) data
+     * @return  value, 0 for other types or no value
+     */
+    public long getLongValue() {
+        if (this.isLazyNumber()) {
+            return (this.type == MagicMarker.DOUBLE) ? (long)Double.longBitsToDouble(this.bits) : this.bits;
+        }
+        Object v = this.getValue();
+        if (v instanceof Number) {
+            return ((Number)v).longValue();
+        }
+        if (v instanceof Date) {
+            return ((Date)v).getTime();
+        }
+        return 0L;
+    }
+
+    /**
+     * Returns the value of INT data, other numeric values are converted as by getLongValue()
+     * @return  value, 0 for other types or no value
+     */
+    public int getIntValue() {
+        return (int)this.getLongValue();
+    }
+
+    /**
+     * Returns the value of DOUBLE data, other numeric values are converted as by getLongValue()
+     * @return  value, 0 for other types or no value
+     */
+    public double getDoubleValue() {
+        if (this.isLazyNumber()) {
+            return (this.type == MagicMarker.DOUBLE) ? Double.longBitsToDouble(this.bits) : (double)this.bits;
+        }
+        Object v = this.getValue();
+        if (v instanceof Double) {
+            return (Double)v;
+        }
+        return this.getLongValue();
+    }
+
+    /**
+     * Returns the value of DATE data
+     * @return  value or null for other types or no value
+     */
+    public Date getDateValue() {
+        Object v = this.getValue();
+        return (v instanceof Date) ? (Date)v : null;
+    }
+
+    /**
+     * Returns the value of STRING or CHARS data as String
+     * @return  value or null for other types or no value
+     */
+    public String getStringValue() {
+        Object v = this.getValue();
+        if (v instanceof String) {
+            return (String)v;
+        }
+        if (v instanceof char[]) {
+            return new String((char[])v);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the value of CHARS data
+     * @return  value or null for other types or no value
+     */
+    public char[] getCharsValue() {
+        Object v = this.getValue();
+        return (v instanceof char[]) ? (char[])v : null;
+    }
+
+    /**
+     * Returns the value of BYTES, CUSTOM_INT or CUSTOM_LONG data
+     * @return  value or null for other types or no value
+     */
+    public byte[] getBytesValue() {
+        Object v = this.getValue();
+        return (v instanceof byte[]) ? (byte[])v : null;
+    }
+
+    /**
+     * Returns a copy of this data, byte[], char[] and Date values are copied as well
+     * @return  copy
+     */
+    public BinaryInputData copy() {
+        Object v = this.value;
+        if (v instanceof byte[]) {
+            v = ((byte[])v).clone();
+        } else if (v instanceof char[]) {
+            v = ((char[])v).clone();
+        } else if (v instanceof Date) {
+            v = new Date(((Date)v).getTime());
+        }
+        BinaryInputData data = new BinaryInputData(this.position, this.type, v, this.valid);
+        data.lazy = this.lazy;
+        data.bits = this.bits;
+        data.raw = this.raw;
+        data.reader = this.reader;
+        data.payloadPosition = this.payloadPosition;
+        data.payloadLength = this.payloadLength;
+        return data;
+    }
+
+    /**
+     * Internally checks if this is lazy data of an INT, LONG, DOUBLE or DATE value
+     * @return  true if the value is kept as bits
+     */
+    protected boolean isLazyNumber() {
+        return this.lazy && (this.raw == null) && (this.reader == null);
+    }
+
+    /**
+     * Internally decodes the value of lazy data
+     * @return  value
+     */
+    protected Object decode() {
+        byte[] payload = this.raw;
+        if (this.reader != null) {
+            payload = new byte[this.payloadLength];
+            try {
+                if (this.reader.read(this.payloadPosition, payload, 0, payload.length) != payload.length) {
+                    this.valid = false;
+                    return null;
+                }
+            } catch (IOException ex) {
+                this.valid = false;
+                return null;
+            }
+            if ((this.type != MagicMarker.CHARS) && (this.type != MagicMarker.STRING)) {
+                return payload;
+            }
+        }
+        if (payload != null) {
+            char[] ch = new char[payload.length / 2];
+            ByteConversion.getChars(payload, 0, ch);
+            return (this.type == MagicMarker.STRING) ? new String(ch) : ch;
+        }
+        if (this.type == MagicMarker.INT) {
+            return (int)this.bits;
+        } else if (this.type == MagicMarker.LONG) {
+            return this.bits;
+        } else if (this.type == MagicMarker.DOUBLE) {
+            return Double.longBitsToDouble(this.bits);
+        } else if (this.type == MagicMarker.DATE) {
+            return new Date(this.bits);
+        }
+        return null;
     }
 
     /**
@@ -1,7 +1,12 @@
 package com.github.nilscoding.seqdatastore;
 
+import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Binary output, write methods also write MagicMarker byte and do not throw exceptions
@@ -11,6 +16,25 @@ public class BinaryOutput {
     
     protected final OutputStream stream;
     protected final boolean flush;
+    protected final byte[] scratch = new byte[16];
+    protected long position = 0L;
+    protected long fieldIndex = 0L;
+    protected long blockSize = 0L;
+    protected long blockStart = 0L;
+    protected long blockFieldIndex = 0L;
+    protected BlockStatistics statistics = null;
+    protected boolean trailingLength = false;
+    protected long entryStart = 0L;
+    protected boolean deltaEncoding = false;
+    protected boolean deltaLongValid = false;
+    protected long deltaLongValue = 0L;
+    protected long deltaLongDelta = 0L;
+    protected boolean deltaDateValid = false;
+    protected long deltaDateValue = 0L;
+    protected long deltaDateDelta = 0L;
+    protected int deduplicationSize = 0;
+    protected MessageDigest digest = null;
+    protected final Map<ByteBuffer, Long> payloads = new HashMap<>();
     
     /**
      * Creates a new binary output for writing to the given output stream
@@ -31,6 +55,134 @@ public class BinaryOutput {
         this.flush = flush;
     }
     
+    /**
+     * Sets the block size in bytes, a block ends at the first field boundary after reaching the block size
+     * @param blockSize block size in bytes or 0 for no blocks (one block for all data)
+     */
+    public void setBlockSize(long blockSize) {
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Returns the block size in bytes
+     * @return  block size in bytes, 0 for no blocks
+     */
+    public long getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Sets the block statistics to collect per-block min/max values and bloom filters while writing
+     * @param statistics    block statistics or null for none
+     */
+    public void setBlockStatistics(BlockStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * Returns the block statistics
+     * @return  block statistics, can be null
+     */
+    public BlockStatistics getBlockStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Sets whether or not LONG and DATE values are delta-of-delta encoded<br>
+     * The first value of each type in a block is always written in full.
+     * @param deltaEncoding true to write LONG_DELTA and DATE_DELTA markers, false otherwise
+     */
+    public void setDeltaEncoding(boolean deltaEncoding) {
+        this.deltaEncoding = deltaEncoding;
+        this.resetDelta();
+    }
+
+    /**
+     * Returns whether or not LONG and DATE values are delta-of-delta encoded
+     * @return  true if delta encoding is enabled
+     */
+    public boolean isDeltaEncoding() {
+        return deltaEncoding;
+    }
+
+    /**
+     * Sets the minimum payload size for deduplication of BYTES and CUSTOM_INT data<br>
+     * Payloads of at least this size are hashed (SHA-256) and a repeated payload is written as a reference
+     * to the first field with the same type and payload. References are resolved by BinaryInput with positional
+     * reads of a PositionalReader, which is set up for files and OffHeapStore, see BinaryInput.setReferenceReader(...).
+     * The hashes of all distinct payloads are kept in memory.
+     * @param deduplicationSize minimum payload size in bytes, 0 to disable deduplication
+     */
+    public void setDeduplicationSize(int deduplicationSize) {
+        this.deduplicationSize = Math.max(0, deduplicationSize);
+    }
+
+    /**
+     * Returns the minimum payload size for deduplication
+     * @return  minimum payload size in bytes, 0 if disabled
+     */
+    public int getDeduplicationSize() {
+        return deduplicationSize;
+    }
+
+    /**
+     * Sets whether or not a trailer is written after each field, see writeTrailer()
+     * @param trailingLength    true to write a trailer after each field, false otherwise
+     */
+    public void setTrailingLength(boolean trailingLength) {
+        this.trailingLength = trailingLength;
+    }
+
+    /**
+     * Returns whether or not a trailer is written after each field
+     * @return  true if a trailer is written after each field
+     */
+    public boolean isTrailingLength() {
+        return trailingLength;
+    }
+
+    /**
+     * Returns the number of bytes written so far
+     * @return  number of bytes written
+     */
+    public long getPosition() {
+        return this.position;
+    }
+    
+    /**
+     * Ends the current block, must be called after the last write when using block statistics
+     * @return  this instance
+     */
+    public BinaryOutput endBlock() {
+        if (this.position > this.blockStart) {
+            if (this.statistics != null) {
+                this.statistics.endBlock(this.blockStart, this.position - this.blockStart,
+                        this.blockFieldIndex, this.fieldIndex - this.blockFieldIndex);
+            }
+            this.blockStart = this.position;
+            this.blockFieldIndex = this.fieldIndex;
+            this.resetDelta();
+        }
+        return this;
+    }
+    
+    /**
+     * Writes a trailer with the length of all data written since the previous trailer,
+     * marking the end of an entry (e.g. a record) for reading backwards with BackwardInput<br>
+     * Delta encoding restarts after a trailer, so each entry can be decoded on its own.
+     * @return  this instance
+     */
+    public BinaryOutput writeTrailer() {
+        try {
+            this.writeTrailerBytes();
+            if (this.flush) {
+                this.stream.flush();
+            }
+        } catch (Exception ex) {
+        }
+        return this;
+    }
+    
     /**
      * Writes an int value
      * @param i int to write
@@ -38,11 +190,11 @@ public class BinaryOutput {
      */
     public BinaryOutput writeInt(int i) {
         try {
-            this.stream.write(MagicMarker.B_INT);
-            this.stream.write(ByteConversion.fromInt(i));
-            if (this.flush) {
-                this.stream.flush();
+            this.write(this.scratch, 0, BinaryEncoder.encodeInt(this.scratch, 0, i));
+            if (this.statistics != null) {
+                this.statistics.addLong(MagicMarker.INT, i);
             }
+            this.endField();
         } catch (Exception ex) {
         }
         return this;
@@ -55,11 +207,21 @@ public class BinaryOutput {
      */
     public BinaryOutput writeLong(long l) {
         try {
-            this.stream.write(MagicMarker.B_LONG);
-            this.stream.write(ByteConversion.fromLong(l));
-            if (this.flush) {
-                this.stream.flush();
+            if (this.deltaEncoding && this.deltaLongValid) {
+                long delta = l - this.deltaLongValue;
+                this.write(MagicMarker.B_LONG_DELTA);
+                this.write(ByteConversion.fromVarLong(ByteConversion.toZigZag(delta - this.deltaLongDelta)));
+                this.deltaLongDelta = delta;
+            } else {
+                this.write(this.scratch, 0, BinaryEncoder.encodeLong(this.scratch, 0, l));
+                this.deltaLongValid = true;
+                this.deltaLongDelta = 0L;
+            }
+            this.deltaLongValue = l;
+            if (this.statistics != null) {
+                this.statistics.addLong(MagicMarker.LONG, l);
             }
+            this.endField();
         } catch (Exception ex) {
         }
         return this;
@@ -72,11 +234,11 @@ public class BinaryOutput {
      */
     public BinaryOutput writeDouble(double d) {
         try {
-            this.stream.write(MagicMarker.B_DOUBLE);
-            this.stream.write(ByteConversion.fromDouble(d));
-            if (this.flush) {
-                this.stream.flush();
+            this.write(this.scratch, 0, BinaryEncoder.encodeDouble(this.scratch, 0, d));
+            if (this.statistics != null) {
+                this.statistics.addDouble(d);
             }
+            this.endField();
         } catch (Exception ex) {
         }
         return this;
@@ -90,14 +252,25 @@ public class BinaryOutput {
     public BinaryOutput writeDate(Date d) {
         try {
             if (d == null) {
-                this.stream.write(MagicMarker.B_DATE_NULL);
+                this.write(MagicMarker.B_DATE_NULL);
             } else {
-                this.stream.write(MagicMarker.B_DATE);
-                this.stream.write(ByteConversion.fromLong(d.getTime()));
-            }
-            if (this.flush) {
-                this.stream.flush();
+                long t = d.getTime();
+                if (this.deltaEncoding && this.deltaDateValid) {
+                    long delta = t - this.deltaDateValue;
+                    this.write(MagicMarker.B_DATE_DELTA);
+                    this.write(ByteConversion.fromVarLong(ByteConversion.toZigZag(delta - this.deltaDateDelta)));
+                    this.deltaDateDelta = delta;
+                } else {
+                    this.write(this.scratch, 0, BinaryEncoder.encodeDate(this.scratch, 0, d));
+                    this.deltaDateValid = true;
+                    this.deltaDateDelta = 0L;
+                }
+                this.deltaDateValue = t;
+                if (this.statistics != null) {
+                    this.statistics.addLong(MagicMarker.DATE, t);
+                }
             }
+            this.endField();
         } catch (Exception ex) {
         }
         return this;
@@ -111,17 +284,23 @@ public class BinaryOutput {
     public BinaryOutput writeBytes(byte[] bytes) {
         try {
             if (bytes == null) {
-                this.stream.write(MagicMarker.B_BYTES_NULL);
+                this.write(MagicMarker.B_BYTES_NULL);
+            } else if (this.writeReference(MagicMarker.BYTES, bytes)) {
+                if (this.statistics != null) {
+                    this.statistics.addBytes(bytes);
+                }
             } else {
-                this.stream.write(MagicMarker.B_BYTES);
-                this.stream.write(ByteConversion.fromInt(bytes.length));
+                this.scratch[0] = MagicMarker.BYTES;
+                ByteConversion.putInt(this.scratch, 1, bytes.length);
+                this.write(this.scratch, 0, 5);
                 if (bytes.length > 0) {
-                    this.stream.write(bytes);
+                    this.write(bytes);
+                }
+                if (this.statistics != null) {
+                    this.statistics.addBytes(bytes);
                 }
             }
-            if (this.flush) {
-                this.stream.flush();
-            }
+            this.endField();
         } catch (Exception ex) {
         }
         return this;
@@ -135,19 +314,13 @@ public class BinaryOutput {
     public BinaryOutput writeChars(char[] ch) {
         try {
             if (ch == null) {
-                this.stream.write(MagicMarker.B_CHARS_NULL);
+                this.write(MagicMarker.B_CHARS_NULL);
             } else {
-                this.stream.write(MagicMarker.B_CHARS);
-                this.stream.write(ByteConversion.fromInt(ch.length));
-                if (ch.length > 0) {
-                    for (int i = 0; i < ch.length; i++) {
-                        this.stream.write(ByteConversion.fromShort((short)ch[i]));
-                    }
-                }
-            }
-            if (this.flush) {
-                this.stream.flush();
+                byte[] data = new byte[BinaryEncoder.sizeOf(ch)];
+                BinaryEncoder.encodeChars(data, 0, ch);
+                this.write(data);
             }
+            this.endField();
         } catch (Exception ex) {
         }
         return this;
@@ -161,20 +334,16 @@ public class BinaryOutput {
     public BinaryOutput writeString(String s) {
         try {
             if (s == null) {
-                this.stream.write(MagicMarker.B_STRING_NULL);
+                this.write(MagicMarker.B_STRING_NULL);
             } else {
-                this.stream.write(MagicMarker.B_STRING);
-                char[] ch = s.toCharArray();
-                this.stream.write(ByteConversion.fromInt(ch.length));
-                if (ch.length > 0) {
-                    for (int i = 0; i < ch.length; i++) {
-                        this.stream.write(ByteConversion.fromShort((short)ch[i]));
-                    }
+                byte[] data = new byte[BinaryEncoder.sizeOf(s)];
+                BinaryEncoder.encodeString(data, 0, s);
+                this.write(data);
+                if (this.statistics != null) {
+                    this.statistics.addString(s);
                 }
             }
-            if (this.flush) {
-                this.stream.flush();
-            }
+            this.endField();
         } catch (Exception ex) {
         }
         return this;
@@ -188,16 +357,15 @@ public class BinaryOutput {
     public BinaryOutput writeCustomInt(byte[] data) {
         try {
             if ((data == null) || (data.length == 0)) {
-                this.stream.write(MagicMarker.B_CUSTOM_INT);
-                this.stream.write(ByteConversion.ZERO_INT);
-            } else {
-                this.stream.write(MagicMarker.B_CUSTOM_INT);
-                this.stream.write(ByteConversion.fromInt(data.length));
-                this.stream.write(data);
-            }
-            if (this.flush) {
-                this.stream.flush();
+                this.write(MagicMarker.B_CUSTOM_INT);
+                this.write(ByteConversion.ZERO_INT);
+            } else if (!this.writeReference(MagicMarker.CUSTOM_INT, data)) {
+                this.scratch[0] = MagicMarker.CUSTOM_INT;
+                ByteConversion.putInt(this.scratch, 1, data.length);
+                this.write(this.scratch, 0, 5);
+                this.write(data);
             }
+            this.endField();
         } catch (Exception ex) {
         }
         return this;
@@ -210,37 +378,158 @@ public class BinaryOutput {
      */
     public BinaryOutput writeCustomLong(byte[] ... data) {
         try {
-            if ((data == null) || (data.length == 0)) {
-                this.stream.write(MagicMarker.B_CUSTOM_LONG);
-                this.stream.write(ByteConversion.ZERO_LONG);
-            } else {
-                this.stream.write(MagicMarker.B_CUSTOM_LONG);
-                long tmpLen = 0;
+            this.write(MagicMarker.B_CUSTOM_LONG);
+            this.write(ByteConversion.fromLong(BinaryEncoder.sizeOfCustomLong(data) - 9));
+            if (data != null) {
                 for (byte[] d : data) {
                     if (d != null) {
-                        tmpLen += (long)d.length;
-                    }
-                }
-                if (tmpLen == 0) {
-                    this.stream.write(MagicMarker.B_CUSTOM_LONG);
-                    this.stream.write(ByteConversion.ZERO_LONG);
-                } else {
-                    this.stream.write(ByteConversion.fromLong(tmpLen));
-                    for (byte[] d : data) {
-                        if (d != null) {
-                            this.stream.write(d);
-                        }
+                        this.write(d);
                     }
                 }
             }
-            if (this.flush) {
-                this.stream.flush();
-            }
+            this.endField();
         } catch (Exception ex) {
         }
         return this;
     }
     
+    /**
+     * Internally writes data to the stream and increases the position
+     * @param data  data to write
+     * @throws IOException  if writing fails
+     */
+    protected void write(byte[] data) throws IOException {
+        this.stream.write(data);
+        this.position += data.length;
+    }
+    
+    /**
+     * Internally writes a part of the data to the stream and increases the position
+     * @param data  data to write
+     * @param off   offset in data
+     * @param len   number of bytes to write
+     * @throws IOException  if writing fails
+     */
+    protected void write(byte[] data, int off, int len) throws IOException {
+        this.stream.write(data, off, len);
+        this.position += len;
+    }
+    
+    /**
+     * Internally writes a trailer for the current entry, if it is not empty
+     * @throws IOException  if writing fails
+     */
+    protected void writeTrailerBytes() throws IOException {
+        if (this.position > this.entryStart) {
+            this.scratch[0] = MagicMarker.TRAILER;
+            ByteConversion.putInt(this.scratch, 1, (int)(this.position - this.entryStart));
+            this.write(this.scratch, 0, 5);
+            this.entryStart = this.position;
+            this.resetDelta();
+        }
+    }
+    
+    /**
+     * Internally writes a reference if the payload was written before, otherwise remembers the position of the payload
+     * @param marker    marker of the field
+     * @param data      payload
+     * @return  true if a reference was written, false if the field must be written in full
+     * @throws Exception    if hashing or writing fails
+     */
+    protected boolean writeReference(byte marker, byte[] data) throws Exception {
+        if ((this.deduplicationSize <= 0) || (data.length < this.deduplicationSize)) {
+            return false;
+        }
+        if (this.digest == null) {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        }
+        this.digest.update(marker);
+        ByteBuffer hash = ByteBuffer.wrap(this.digest.digest(data));
+        Long original = this.payloads.get(hash);
+        if (original == null) {
+            this.payloads.put(hash, this.position);
+            return false;
+        }
+        long distance = this.position - original;
+        this.write(MagicMarker.B_REFERENCE);
+        this.write(ByteConversion.fromVarLong(distance));
+        this.write(ByteConversion.fromVarLong(data.length));
+        return true;
+    }
+
+    /**
+     * Internally resets the delta encoding state, the next LONG and DATE values are written in full
+     */
+    protected void resetDelta() {
+        this.deltaLongValid = false;
+        this.deltaDateValid = false;
+    }
+    
+    /**
+     * Internally finishes a logical write: ends the block if the block size is reached and flushes if requested
+     * @throws IOException  if flushing fails
+     */
+    protected void endField() throws IOException {
+        this.fieldIndex++;
+        if (this.trailingLength) {
+            this.writeTrailerBytes();
+        }
+        if ((this.blockSize > 0) && (this.position - this.blockStart >= this.blockSize)) {
+            this.endBlock();
+        }
+        if (this.flush) {
+            this.stream.flush();
+        }
+    }
+    
+    /**
+     * Writes the value of binary input data using the write method of its type
+     * @param data  binary input data, must be valid and contain a value unless it is of a _NULL type
+     * @return  true if written, false if the type is not supported or the value is missing (e.g. masked out)
+     */
+    public boolean write(BinaryInputData data) {
+        if ((data == null) || (!data.isValid())) {
+            return false;
+        }
+        byte type = data.getType();
+        if (type == MagicMarker.DATE_NULL) {
+            this.writeDate(null);
+            return true;
+        } else if (type == MagicMarker.BYTES_NULL) {
+            this.writeBytes(null);
+            return true;
+        } else if (type == MagicMarker.CHARS_NULL) {
+            this.writeChars(null);
+            return true;
+        } else if (type == MagicMarker.STRING_NULL) {
+            this.writeString(null);
+            return true;
+        }
+        Object value = data.getValue();
+        if ((type == MagicMarker.INT) && (value instanceof Integer)) {
+            this.writeInt((Integer)value);
+        } else if ((type == MagicMarker.LONG) && (value instanceof Long)) {
+            this.writeLong((Long)value);
+        } else if ((type == MagicMarker.DOUBLE) && (value instanceof Double)) {
+            this.writeDouble((Double)value);
+        } else if ((type == MagicMarker.DATE) && (value instanceof Date)) {
+            this.writeDate((Date)value);
+        } else if ((type == MagicMarker.BYTES) && (value instanceof byte[])) {
+            this.writeBytes((byte[])value);
+        } else if ((type == MagicMarker.CHARS) && (value instanceof char[])) {
+            this.writeChars((char[])value);
+        } else if ((type == MagicMarker.STRING) && (value instanceof String)) {
+            this.writeString((String)value);
+        } else if ((type == MagicMarker.CUSTOM_INT) && (value instanceof byte[])) {
+            this.writeCustomInt((byte[])value);
+        } else if ((type == MagicMarker.CUSTOM_LONG) && (value instanceof byte[])) {
+            this.writeCustomLong((byte[])value);
+        } else {
+            return false;
+        }
+        return true;
+    }
+    
     // Remark: raw writing would be useful if the stream supports a seek method
     //   which would allow some fancy custom data writing implementations
 //    /**
@@ -0,0 +1,232 @@
+package com.github.nilscoding.seqdatastore;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size-bounded LRU cache of decoded blocks, keyed by file and block offset<br>
+ * The cache is split into stripes with their own lock and an equal share of the capacity,
+ * so concurrent readers of different blocks rarely wait for each other. Blocks larger than the capacity
+ * of a stripe are not cached and counted as rejections, a high count means the capacity is too small for the block size.
+ * @author NilsCoding
+ */
+public class BlockCache {
+
+    /**
+     * default number of stripes
+     */
+    public static final int DEFAULT_STRIPES = 16;
+
+    protected final Stripe[] stripes;
+    protected final long stripeCapacity;
+    protected final AtomicLong hits = new AtomicLong();
+    protected final AtomicLong misses = new AtomicLong();
+    protected final AtomicLong evictions = new AtomicLong();
+    protected final AtomicLong rejections = new AtomicLong();
+
+    /**
+     * Creates a new block cache with the default number of stripes
+     * @param capacity  capacity in (estimated) bytes
+     */
+    public BlockCache(long capacity) {
+        this(capacity, DEFAULT_STRIPES);
+    }
+
+    /**
+     * Creates a new block cache
+     * @param capacity      capacity in (estimated) bytes
+     * @param stripeCount   number of stripes
+     */
+    public BlockCache(long capacity, int stripeCount) {
+        this.stripes = new Stripe[Math.max(1, stripeCount)];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.stripeCapacity = capacity / this.stripes.length;
+    }
+
+    /**
+     * Returns the cached block
+     * @param file      file key, e.g. the canonical file path
+     * @param offset    block offset
+     * @return  cached block or null if not cached
+     */
+    public DecodedBlock get(Object file, long offset) {
+        Key key = new Key(file, offset);
+        Stripe stripe = this.stripe(key);
+        DecodedBlock block;
+        synchronized (stripe) {
+            block = stripe.map.get(key);
+        }
+        if (block != null) {
+            this.hits.incrementAndGet();
+        } else {
+            this.misses.incrementAndGet();
+        }
+        return block;
+    }
+
+    /**
+     * Adds a block, evicting the least recently used blocks of the stripe if needed<br>
+     * Blocks larger than the capacity of a stripe are not cached.
+     * @param file      file key, e.g. the canonical file path
+     * @param offset    block offset
+     * @param block     decoded block
+     * @return  the cached block, which is an already cached block for the same key if present
+     */
+    public DecodedBlock put(Object file, long offset, DecodedBlock block) {
+        if (!this.admit(block.getWeight())) {
+            return block;
+        }
+        Key key = new Key(file, offset);
+        Stripe stripe = this.stripe(key);
+        synchronized (stripe) {
+            DecodedBlock existing = stripe.map.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            stripe.map.put(key, block);
+            stripe.size += block.getWeight();
+            Iterator<DecodedBlock> it = stripe.map.values().iterator();
+            while ((stripe.size > this.stripeCapacity) && (it.hasNext())) {
+                DecodedBlock eldest = it.next();
+                it.remove();
+                stripe.size -= eldest.getWeight();
+                this.evictions.incrementAndGet();
+            }
+        }
+        return block;
+    }
+
+    /**
+     * Checks if a block of the given weight can be cached, counting a rejection if not
+     * @param weight    (estimated) size in bytes
+     * @return  true if the block fits into a stripe, false otherwise
+     */
+    public boolean admit(long weight) {
+        if (weight > this.stripeCapacity) {
+            this.rejections.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Removes all blocks
+     */
+    public void clear() {
+        for (Stripe stripe : this.stripes) {
+            synchronized (stripe) {
+                stripe.map.clear();
+                stripe.size = 0L;
+            }
+        }
+    }
+
+    /**
+     * Returns the (estimated) size of all cached blocks in bytes
+     * @return  size in bytes
+     */
+    public long getSize() {
+        long size = 0L;
+        for (Stripe stripe : this.stripes) {
+            synchronized (stripe) {
+                size += stripe.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns the number of cache hits
+     * @return  number of hits
+     */
+    public long getHitCount() {
+        return this.hits.get();
+    }
+
+    /**
+     * Returns the number of cache misses
+     * @return  number of misses
+     */
+    public long getMissCount() {
+        return this.misses.get();
+    }
+
+    /**
+     * Returns the number of evicted blocks
+     * @return  number of evictions
+     */
+    public long getEvictionCount() {
+        return this.evictions.get();
+    }
+
+    /**
+     * Returns the number of blocks which were not cached because they are larger than the capacity of a stripe
+     * @return  number of rejections
+     */
+    public long getRejectionCount() {
+        return this.rejections.get();
+    }
+
+    /**
+     * Returns the capacity of each stripe
+     * @return  capacity in (estimated) bytes
+     */
+    public long getStripeCapacity() {
+        return this.stripeCapacity;
+    }
+
+    /**
+     * Internally returns the stripe of a key
+     * @param key   key
+     * @return  stripe
+     */
+    protected Stripe stripe(Key key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return this.stripes[(h & Integer.MAX_VALUE) % this.stripes.length];
+    }
+
+    /**
+     * Cache key of file and block offset
+     */
+    protected static class Key {
+
+        protected final Object file;
+        protected final long offset;
+
+        protected Key(Object file, long offset) {
+            this.file = file;
+            this.offset = offset;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * this.file.hashCode() + (int)(this.offset ^ (this.offset >>> 32));
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key)obj;
+            return (this.offset == other.offset) && (this.file.equals(other.file));
+        }
+
+    }
+
+    /**
+     * One stripe of the cache, an access-ordered map guarded by its own lock
+     */
+    protected static class Stripe {
+
+        protected final Map<Key, DecodedBlock> map = new LinkedHashMap<>(16, 0.75f, true);
+        protected long size = 0L;
+
+    }
+
+}
@@ -0,0 +1,16 @@
+package com.github.nilscoding.seqdatastore;
+
+/**
+ * Predicate on block statistics, see BlockPredicates for common predicates
+ * @author NilsCoding
+ */
+public interface BlockPredicate {
+    
+    /**
+     * Checks if the block might contain matching data
+     * @param block block statistics
+     * @return  true if the block might contain matching data, false if it can be skipped
+     */
+    boolean mayMatch(BlockStatistics.Block block);
+    
+}
@@ -0,0 +1,122 @@
+package com.github.nilscoding.seqdatastore;
+
+import java.util.Date;
+
+/**
+ * Common block predicates
+ * @author NilsCoding
+ */
+public final class BlockPredicates {
+    
+    private BlockPredicates() { }
+    
+    /**
+     * Creates a predicate for blocks containing values of type INT, LONG or DATE in the given range
+     * @param type  INT, LONG or DATE
+     * @param min   min value (inclusive)
+     * @param max   max value (inclusive)
+     * @return  block predicate
+     */
+    public static BlockPredicate range(final byte type, final long min, final long max) {
+        return new BlockPredicate() {
+            @Override
+            public boolean mayMatch(BlockStatistics.Block block) {
+                return block.hasRange(type) && (block.getMin(type) <= max) && (block.getMax(type) >= min);
+            }
+        };
+    }
+    
+    /**
+     * Creates a predicate for blocks containing DATE values in the given range
+     * @param from  first date (inclusive)
+     * @param to    last date (inclusive)
+     * @return  block predicate
+     */
+    public static BlockPredicate dateRange(Date from, Date to) {
+        return range(MagicMarker.DATE, from.getTime(), to.getTime());
+    }
+    
+    /**
+     * Creates a predicate for blocks containing DOUBLE values in the given range
+     * @param min   min value (inclusive)
+     * @param max   max value (inclusive)
+     * @return  block predicate
+     */
+    public static BlockPredicate doubleRange(final double min, final double max) {
+        return new BlockPredicate() {
+            @Override
+            public boolean mayMatch(BlockStatistics.Block block) {
+                return block.hasDoubleRange() && (block.getMinDouble() <= max) && (block.getMaxDouble() >= min);
+            }
+        };
+    }
+    
+    /**
+     * Creates a predicate for blocks which might contain the given STRING value
+     * @param s String value
+     * @return  block predicate
+     */
+    public static BlockPredicate stringEquals(final String s) {
+        return new BlockPredicate() {
+            @Override
+            public boolean mayMatch(BlockStatistics.Block block) {
+                BloomFilter bloom = block.getBloomFilter(MagicMarker.STRING);
+                return (bloom != null) && (bloom.mightContain(s));
+            }
+        };
+    }
+    
+    /**
+     * Creates a predicate for blocks which might contain the given BYTES value
+     * @param bytes byte value
+     * @return  block predicate
+     */
+    public static BlockPredicate bytesEquals(final byte[] bytes) {
+        return new BlockPredicate() {
+            @Override
+            public boolean mayMatch(BlockStatistics.Block block) {
+                BloomFilter bloom = block.getBloomFilter(MagicMarker.BYTES);
+                return (bloom != null) && (bloom.mightContain(bytes));
+            }
+        };
+    }
+    
+    /**
+     * Creates a predicate matching if all given predicates match
+     * @param predicates    predicates
+     * @return  block predicate
+     */
+    public static BlockPredicate and(final BlockPredicate ... predicates) {
+        return new BlockPredicate() {
+            @Override
+            public boolean mayMatch(BlockStatistics.Block block) {
+                for (BlockPredicate p : predicates) {
+                    if (!p.mayMatch(block)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        };
+    }
+    
+    /**
+     * Creates a predicate matching if any of the given predicates matches
+     * @param predicates    predicates
+     * @return  block predicate
+     */
+    public static BlockPredicate or(final BlockPredicate ... predicates) {
+        return new BlockPredicate() {
+            @Override
+            public boolean mayMatch(BlockStatistics.Block block) {
+                for (BlockPredicate p : predicates) {
+                    if (p.mayMatch(block)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+        };
+    }
+    
+}
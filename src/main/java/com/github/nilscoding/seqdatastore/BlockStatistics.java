@@ -0,0 +1,415 @@
+package com.github.nilscoding.seqdatastore;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Per-block statistics, collected by BinaryOutput while writing<br>
+ * Contains min/max values for INT, LONG, DATE and DOUBLE and bloom filters for STRING and BYTES.
+ * The statistics can be stored as a sidecar file which uses the BinaryOutput format itself.
+ * @author NilsCoding
+ */
+public class BlockStatistics {
+
+    /**
+     * default number of bloom filter bits per block and type
+     */
+    public static final int DEFAULT_BLOOM_BITS = 8192;
+    /**
+     * default number of bloom filter hash functions
+     */
+    public static final int DEFAULT_BLOOM_HASHES = 4;
+
+    protected static final String HEADER = "seq-data-store-stats";
+    protected static final int VERSION = 1;
+
+    protected final int bloomBits;
+    protected final int bloomHashes;
+    protected final List<Block> blocks = new ArrayList<>();
+    protected Block current = null;
+
+    /**
+     * Creates new empty block statistics with default bloom filter settings
+     */
+    public BlockStatistics() {
+        this(DEFAULT_BLOOM_BITS, DEFAULT_BLOOM_HASHES);
+    }
+
+    /**
+     * Creates new empty block statistics
+     * @param bloomBits     number of bloom filter bits per block and type
+     * @param bloomHashes   number of bloom filter hash functions
+     */
+    public BlockStatistics(int bloomBits, int bloomHashes) {
+        this.bloomBits = bloomBits;
+        this.bloomHashes = bloomHashes;
+    }
+
+    /**
+     * Returns the finished blocks
+     * @return  blocks, ordered by position
+     */
+    public List<Block> getBlocks() {
+        return Collections.unmodifiableList(this.blocks);
+    }
+
+    /**
+     * Adds a value of type INT, LONG or DATE to the current block
+     * @param type  type
+     * @param value value
+     */
+    public void addLong(byte type, long value) {
+        this.currentBlock().addLong(type, value);
+    }
+
+    /**
+     * Adds a DOUBLE value to the current block
+     * @param value value
+     */
+    public void addDouble(double value) {
+        this.currentBlock().addDouble(value);
+    }
+
+    /**
+     * Adds a STRING value to the current block
+     * @param value value
+     */
+    public void addString(String value) {
+        Block block = this.currentBlock();
+        if (block.stringBloom == null) {
+            block.stringBloom = new BloomFilter(this.bloomBits, this.bloomHashes);
+        }
+        block.stringBloom.add(value);
+    }
+
+    /**
+     * Adds a BYTES value to the current block
+     * @param value value
+     */
+    public void addBytes(byte[] value) {
+        Block block = this.currentBlock();
+        if (block.bytesBloom == null) {
+            block.bytesBloom = new BloomFilter(this.bloomBits, this.bloomHashes);
+        }
+        block.bytesBloom.add(value);
+    }
+
+    /**
+     * Finishes the current block
+     * @param start         start position of the block
+     * @param length        length of the block in bytes
+     * @param firstField    index of the first field in the block
+     * @param fieldCount    number of fields in the block
+     */
+    public void endBlock(long start, long length, long firstField, long fieldCount) {
+        Block block = this.currentBlock();
+        block.start = start;
+        block.length = length;
+        block.firstField = firstField;
+        block.fieldCount = fieldCount;
+        this.blocks.add(block);
+        this.current = null;
+    }
+
+    /**
+     * Returns the current block, creating it if needed
+     * @return  current block
+     */
+    protected Block currentBlock() {
+        if (this.current == null) {
+            this.current = new Block();
+        }
+        return this.current;
+    }
+
+    /**
+     * Writes the statistics of all finished blocks
+     * @param outStream output stream
+     * @return  true if written successfully, false otherwise
+     */
+    public boolean write(OutputStream outStream) {
+        BinaryOutput out = new BinaryOutput(outStream, false);
+        out.writeString(HEADER);
+        out.writeInt(VERSION);
+        out.writeInt(this.bloomBits);
+        out.writeInt(this.bloomHashes);
+        out.writeInt(this.blocks.size());
+        for (Block block : this.blocks) {
+            out.writeLong(block.start);
+            out.writeLong(block.length);
+            out.writeLong(block.firstField);
+            out.writeLong(block.fieldCount);
+            for (int i = 0; i < Block.LONG_TYPES.length; i++) {
+                out.writeBytes(block.hasRange[i] ? ByteConversion.fromLong(block.min[i]) : null);
+                out.writeBytes(block.hasRange[i] ? ByteConversion.fromLong(block.max[i]) : null);
+            }
+            out.writeBytes(block.hasDoubleRange ? ByteConversion.fromDouble(block.minDouble) : null);
+            out.writeBytes(block.hasDoubleRange ? ByteConversion.fromDouble(block.maxDouble) : null);
+            out.writeBytes(block.stringBloom != null ? block.stringBloom.toBytes() : null);
+            out.writeBytes(block.bytesBloom != null ? block.bytesBloom.toBytes() : null);
+        }
+        try {
+            outStream.flush();
+            return true;
+        } catch (Exception ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Reads block statistics as written by write(OutputStream)
+     * @param inStream  input stream
+     * @return  block statistics or null if invalid
+     */
+    public static BlockStatistics read(InputStream inStream) {
+        BinaryInput in = new BinaryInput(inStream);
+        if (!HEADER.equals(value(in, MagicMarker.STRING))) {
+            return null;
+        }
+        Integer version = (Integer)value(in, MagicMarker.INT);
+        Integer bloomBits = (Integer)value(in, MagicMarker.INT);
+        Integer bloomHashes = (Integer)value(in, MagicMarker.INT);
+        Integer blockCount = (Integer)value(in, MagicMarker.INT);
+        if ((version == null) || (version != VERSION) || (bloomBits == null) || (bloomHashes == null) || (blockCount == null)) {
+            return null;
+        }
+        BlockStatistics stats = new BlockStatistics(bloomBits, bloomHashes);
+        for (int b = 0; b < blockCount; b++) {
+            Block block = new Block();
+            Long start = (Long)value(in, MagicMarker.LONG);
+            Long length = (Long)value(in, MagicMarker.LONG);
+            Long firstField = (Long)value(in, MagicMarker.LONG);
+            Long fieldCount = (Long)value(in, MagicMarker.LONG);
+            if ((start == null) || (length == null) || (firstField == null) || (fieldCount == null)) {
+                return null;
+            }
+            block.start = start;
+            block.length = length;
+            block.firstField = firstField;
+            block.fieldCount = fieldCount;
+            for (int i = 0; i < Block.LONG_TYPES.length; i++) {
+                byte[] min = (byte[])value(in, MagicMarker.BYTES);
+                byte[] max = (byte[])value(in, MagicMarker.BYTES);
+                if ((min != null) && (max != null)) {
+                    block.hasRange[i] = true;
+                    block.min[i] = ByteConversion.toLong(min);
+                    block.max[i] = ByteConversion.toLong(max);
+                }
+            }
+            byte[] minDouble = (byte[])value(in, MagicMarker.BYTES);
+            byte[] maxDouble = (byte[])value(in, MagicMarker.BYTES);
+            if ((minDouble != null) && (maxDouble != null)) {
+                block.hasDoubleRange = true;
+                block.minDouble = ByteConversion.toDouble(minDouble);
+                block.maxDouble = ByteConversion.toDouble(maxDouble);
+            }
+            block.stringBloom = BloomFilter.fromBytes((byte[])value(in, MagicMarker.BYTES), bloomHashes);
+            block.bytesBloom = BloomFilter.fromBytes((byte[])value(in, MagicMarker.BYTES), bloomHashes);
+            stats.blocks.add(block);
+        }
+        return stats;
+    }
+
+    /**
+     * Reads the next value if it is of the expected type or its null type
+     * @param in    binary input
+     * @param type  expected type
+     * @return  value or null if invalid
+     */
+    protected static Object value(BinaryInput in, byte type) {
+        BinaryInputData data = in.read();
+        if ((data == null) || (!data.isValid())) {
+            return null;
+        }
+        if ((data.getType() & 0b00011111) != (type & 0b00011111)) {
+            return null;
+        }
+        return data.getValue();
+    }
+
+    /**
+     * Statistics of one block
+     */
+    public static class Block {
+
+        protected static final byte[] LONG_TYPES = new byte[]{ MagicMarker.INT, MagicMarker.LONG, MagicMarker.DATE };
+
+        protected long start;
+        protected long length;
+        protected long firstField;
+        protected long fieldCount;
+        protected final boolean[] hasRange = new boolean[LONG_TYPES.length];
+        protected final long[] min = new long[LONG_TYPES.length];
+        protected final long[] max = new long[LONG_TYPES.length];
+        protected boolean hasDoubleRange;
+        protected double minDouble;
+        protected double maxDouble;
+        protected BloomFilter stringBloom;
+        protected BloomFilter bytesBloom;
+
+        /**
+         * Returns the start position
+         * @return  start position
+         */
+        public long getStart() {
+            return start;
+        }
+
+        /**
+         * Returns the length in bytes
+         * @return  length in bytes
+         */
+        public long getLength() {
+            return length;
+        }
+
+        /**
+         * Returns the end position (exclusive)
+         * @return  end position
+         */
+        public long getEnd() {
+            return start + length;
+        }
+
+        /**
+         * Returns the index of the first field in this block
+         * @return  index of the first field
+         */
+        public long getFirstField() {
+            return firstField;
+        }
+
+        /**
+         * Returns the number of fields in this block
+         * @return  number of fields
+         */
+        public long getFieldCount() {
+            return fieldCount;
+        }
+
+        /**
+         * Checks if the block contains a min/max range for the given type
+         * @param type  INT, LONG or DATE
+         * @return  true if the block contains values of the type
+         */
+        public boolean hasRange(byte type) {
+            int index = typeIndex(type);
+            return (index >= 0) && (this.hasRange[index]);
+        }
+
+        /**
+         * Returns the min value of the given type
+         * @param type  INT, LONG or DATE
+         * @return  min value, Long.MIN_VALUE if the block does not contain values of the type
+         */
+        public long getMin(byte type) {
+            return this.hasRange(type) ? this.min[typeIndex(type)] : Long.MIN_VALUE;
+        }
+
+        /**
+         * Returns the max value of the given type
+         * @param type  INT, LONG or DATE
+         * @return  max value, Long.MAX_VALUE if the block does not contain values of the type
+         */
+        public long getMax(byte type) {
+            return this.hasRange(type) ? this.max[typeIndex(type)] : Long.MAX_VALUE;
+        }
+
+        /**
+         * Checks if the block contains a min/max range for DOUBLE
+         * @return  true if the block contains DOUBLE values
+         */
+        public boolean hasDoubleRange() {
+            return hasDoubleRange;
+        }
+
+        /**
+         * Returns the min DOUBLE value
+         * @return  min value, NaN values are ignored
+         */
+        public double getMinDouble() {
+            return minDouble;
+        }
+
+        /**
+         * Returns the max DOUBLE value
+         * @return  max value, NaN values are ignored
+         */
+        public double getMaxDouble() {
+            return maxDouble;
+        }
+
+        /**
+         * Returns the bloom filter of the given type
+         * @param type  STRING or BYTES
+         * @return  bloom filter or null if the block does not contain values of the type
+         */
+        public BloomFilter getBloomFilter(byte type) {
+            if (type == MagicMarker.STRING) {
+                return stringBloom;
+            } else if (type == MagicMarker.BYTES) {
+                return bytesBloom;
+            }
+            return null;
+        }
+
+        /**
+         * Adds a long value
+         * @param type  type
+         * @param value value
+         */
+        protected void addLong(byte type, long value) {
+            int index = typeIndex(type);
+            if (index < 0) {
+                return;
+            }
+            if (!this.hasRange[index]) {
+                this.hasRange[index] = true;
+                this.min[index] = value;
+                this.max[index] = value;
+            } else if (value < this.min[index]) {
+                this.min[index] = value;
+            } else if (value > this.max[index]) {
+                this.max[index] = value;
+            }
+        }
+
+        /**
+         * Adds a double value, NaN is ignored
+         * @param value value
+         */
+        protected void addDouble(double value) {
+            if (Double.isNaN(value)) {
+                return;
+            }
+            if (!this.hasDoubleRange) {
+                this.hasDoubleRange = true;
+                this.minDouble = value;
+                this.maxDouble = value;
+            } else if (value < this.minDouble) {
+                this.minDouble = value;
+            } else if (value > this.maxDouble) {
+                this.maxDouble = value;
+            }
+        }
+
+        /**
+         * Returns the internal index of the given type
+         * @param type  type
+         * @return  index or -1 if not supported
+         */
+        protected static int typeIndex(byte type) {
+            for (int i = 0; i < LONG_TYPES.length; i++) {
+                if (LONG_TYPES[i] == type) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+    }
+
+}
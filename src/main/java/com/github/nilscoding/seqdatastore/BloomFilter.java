@@ -0,0 +1,182 @@
+package com.github.nilscoding.seqdatastore;
+
+/**
+ * Simple bloom filter for byte and character data<br>
+ * Characters are hashed as their 2-byte encoding, so a String and its stored bytes produce the same hash
+ * @author NilsCoding
+ */
+public class BloomFilter {
+
+    protected final long[] bits;
+    protected final int hashCount;
+
+    /**
+     * Creates a new empty bloom filter
+     * @param bitCount  number of bits, rounded up to a multiple of 64
+     * @param hashCount number of hash functions
+     */
+    public BloomFilter(int bitCount, int hashCount) {
+        this.bits = new long[Math.max(1, (bitCount + 63) / 64)];
+        this.hashCount = Math.max(1, hashCount);
+    }
+
+    /**
+     * Creates a bloom filter from existing bits
+     * @param bits      bits
+     * @param hashCount number of hash functions
+     */
+    public BloomFilter(long[] bits, int hashCount) {
+        this.bits = bits;
+        this.hashCount = Math.max(1, hashCount);
+    }
+
+    /**
+     * Adds byte data
+     * @param data  byte data
+     */
+    public void add(byte[] data) {
+        this.addHash(hash(data));
+    }
+
+    /**
+     * Adds character data
+     * @param s String data
+     */
+    public void add(String s) {
+        this.addHash(hash(s));
+    }
+
+    /**
+     * Checks if the byte data might have been added
+     * @param data  byte data
+     * @return  true if the data might have been added, false if it definitely was not added
+     */
+    public boolean mightContain(byte[] data) {
+        return this.mightContainHash(hash(data));
+    }
+
+    /**
+     * Checks if the String data might have been added
+     * @param s String data
+     * @return  true if the data might have been added, false if it definitely was not added
+     */
+    public boolean mightContain(String s) {
+        return this.mightContainHash(hash(s));
+    }
+
+    /**
+     * Returns the bits
+     * @return  bits
+     */
+    public long[] getBits() {
+        return bits;
+    }
+
+    /**
+     * Returns the number of hash functions
+     * @return  number of hash functions
+     */
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    /**
+     * Converts the bits to byte[]
+     * @return  byte[] with 8 bytes per long
+     */
+    public byte[] toBytes() {
+        byte[] data = new byte[this.bits.length * 8];
+        ByteConversion.putLongs(data, 0, this.bits);
+        return data;
+    }
+
+    /**
+     * Creates a bloom filter from byte[] as created by toBytes()
+     * @param data      byte data
+     * @param hashCount number of hash functions
+     * @return  bloom filter or null if data is invalid
+     */
+    public static BloomFilter fromBytes(byte[] data, int hashCount) {
+        if ((data == null) || (data.length == 0) || (data.length % 8 != 0)) {
+            return null;
+        }
+        long[] bits = new long[data.length / 8];
+        ByteConversion.getLongs(data, 0, bits);
+        return new BloomFilter(bits, hashCount);
+    }
+
+    /**
+     * Sets the bits for the given hash
+     * @param h hash value
+     */
+    protected void addHash(long h) {
+        long bitSize = (long)this.bits.length * 64L;
+        long h1 = h;
+        long h2 = (h >>> 32) | 1L;
+        for (int i = 0; i < this.hashCount; i++) {
+            long index = ((h1 + i * h2) & Long.MAX_VALUE) % bitSize;
+            this.bits[(int)(index >>> 6)] |= (1L << (index & 63));
+        }
+    }
+
+    /**
+     * Checks the bits for the given hash
+     * @param h hash value
+     * @return  true if all bits are set
+     */
+    protected boolean mightContainHash(long h) {
+        long bitSize = (long)this.bits.length * 64L;
+        long h1 = h;
+        long h2 = (h >>> 32) | 1L;
+        for (int i = 0; i < this.hashCount; i++) {
+            long index = ((h1 + i * h2) & Long.MAX_VALUE) % bitSize;
+            if ((this.bits[(int)(index >>> 6)] & (1L << (index & 63))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Calculates the hash of byte data
+     * @param data  byte data
+     * @return  hash value
+     */
+    protected static long hash(byte[] data) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : data) {
+            h = (h ^ (b & 0xFF)) * 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    /**
+     * Calculates the hash of String data, using the 2-byte encoding of each character
+     * @param s String data
+     * @return  hash value
+     */
+    protected static long hash(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            h = (h ^ ((c >> 8) & 0xFF)) * 0x100000001b3L;
+            h = (h ^ (c & 0xFF)) * 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    /**
+     * Final mixing of a hash value
+     * @param h hash value
+     * @return  mixed hash value
+     */
+    protected static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+}
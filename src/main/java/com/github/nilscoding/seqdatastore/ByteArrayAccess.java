@@ -0,0 +1,57 @@
+package com.github.nilscoding.seqdatastore;
+
+/**
+ * Big-endian access to byte arrays at an offset, Java 8 implementation<br>
+ * The multi-release JAR contains a Java 9+ version of this class using VarHandles.
+ * @author NilsCoding
+ */
+final class ByteArrayAccess {
+    
+    private ByteArrayAccess() { }
+    
+    static short getShort(byte[] b, int off) {
+        return (short)((b[off] & 0xFF) << 8 | (b[off + 1] & 0xFF));
+    }
+    
+    static void putShort(byte[] b, int off, short s) {
+        b[off] = (byte) (s >> 8);
+        b[off + 1] = (byte) (s);
+    }
+    
+    static int getInt(byte[] b, int off) {
+        return    (0xff & b[off]) << 24 
+                | (0xff & b[off + 1]) << 16 
+                | (0xff & b[off + 2]) << 8 
+                | (0xff & b[off + 3]);
+    }
+    
+    static void putInt(byte[] b, int off, int i) {
+        b[off] = (byte) (i >> 24);
+        b[off + 1] = (byte) (i >> 16);
+        b[off + 2] = (byte) (i >> 8);
+        b[off + 3] = (byte) (i);
+    }
+    
+    static long getLong(byte[] b, int off) {
+        return    (long)(0xff & b[off]) << 56 
+                | (long)(0xff & b[off + 1]) << 48 
+                | (long)(0xff & b[off + 2]) << 40 
+                | (long)(0xff & b[off + 3]) << 32 
+                | (long)(0xff & b[off + 4]) << 24 
+                | (long)(0xff & b[off + 5]) << 16 
+                | (long)(0xff & b[off + 6]) << 8 
+                | (long)(0xff & b[off + 7]);
+    }
+    
+    static void putLong(byte[] b, int off, long l) {
+        b[off] = (byte) (l >> 56);
+        b[off + 1] = (byte) (l >> 48);
+        b[off + 2] = (byte) (l >> 40);
+        b[off + 3] = (byte) (l >> 32);
+        b[off + 4] = (byte) (l >> 24);
+        b[off + 5] = (byte) (l >> 16);
+        b[off + 6] = (byte) (l >> 8);
+        b[off + 7] = (byte) (l);
+    }
+    
+}
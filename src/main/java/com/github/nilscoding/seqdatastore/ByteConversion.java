@@ -23,10 +23,8 @@ public class ByteConversion {
      * @return  byte[] with length 2
      */
     public static byte[] fromShort(short s) {
-        byte[] data = new byte[] {
-            (byte) (s >> 8),
-            (byte) (s)
-        };
+        byte[] data = new byte[2];
+        ByteArrayAccess.putShort(data, 0, s);
         return data;
     }
     
@@ -36,12 +34,8 @@ public class ByteConversion {
      * @return  byte[] with length 4
      */
     public static byte[] fromInt(int i) {
-        byte[] data = new byte[] {
-            (byte) (i >> 24),
-            (byte) (i >> 16),
-            (byte) (i >> 8),
-            (byte) (i)
-        };
+        byte[] data = new byte[4];
+        ByteArrayAccess.putInt(data, 0, i);
         return data;
     }
     
@@ -51,16 +45,8 @@ public class ByteConversion {
      * @return  byte[] of length 8
      */
     public static byte[] fromLong(long l) {
-        byte[] data = new byte[] {
-            (byte) (l >> 56),
-            (byte) (l >> 48),
-            (byte) (l >> 40),
-            (byte) (l >> 32),
-            (byte) (l >> 24),
-            (byte) (l >> 16),
-            (byte) (l >> 8),
-            (byte) (l)
-        };
+        byte[] data = new byte[8];
+        ByteArrayAccess.putLong(data, 0, l);
         return data;
     }
     
@@ -74,6 +60,218 @@ public class ByteConversion {
         return fromLong(l);
     }
     
+    /**
+     * Writes a short value to byte[] at the given offset
+     * @param dst   destination byte[], at least off + 2 bytes
+     * @param off   offset
+     * @param s     short value
+     */
+    public static void putShort(byte[] dst, int off, short s) {
+        ByteArrayAccess.putShort(dst, off, s);
+    }
+    
+    /**
+     * Writes an int value to byte[] at the given offset
+     * @param dst   destination byte[], at least off + 4 bytes
+     * @param off   offset
+     * @param i     int value
+     */
+    public static void putInt(byte[] dst, int off, int i) {
+        ByteArrayAccess.putInt(dst, off, i);
+    }
+    
+    /**
+     * Writes a long value to byte[] at the given offset
+     * @param dst   destination byte[], at least off + 8 bytes
+     * @param off   offset
+     * @param l     long value
+     */
+    public static void putLong(byte[] dst, int off, long l) {
+        ByteArrayAccess.putLong(dst, off, l);
+    }
+    
+    /**
+     * Writes a double value to byte[] at the given offset, using Double.doubleToLongBits(double)
+     * @param dst   destination byte[], at least off + 8 bytes
+     * @param off   offset
+     * @param d     double value
+     */
+    public static void putDouble(byte[] dst, int off, double d) {
+        ByteArrayAccess.putLong(dst, off, Double.doubleToLongBits(d));
+    }
+    
+    /**
+     * Writes char values to byte[] at the given offset, using 2 bytes per char
+     * @param dst   destination byte[], at least off + 2 * src.length bytes
+     * @param off   offset
+     * @param src   char values
+     */
+    public static void putChars(byte[] dst, int off, char[] src) {
+        for (int i = 0; i < src.length; i++) {
+            ByteArrayAccess.putShort(dst, off + i * 2, (short)src[i]);
+        }
+    }
+    
+    /**
+     * Writes the chars of a String to byte[] at the given offset, using 2 bytes per char
+     * @param dst   destination byte[], at least off + 2 * s.length() bytes
+     * @param off   offset
+     * @param s     String value
+     */
+    public static void putChars(byte[] dst, int off, String s) {
+        int len = s.length();
+        for (int i = 0; i < len; i++) {
+            ByteArrayAccess.putShort(dst, off + i * 2, (short)s.charAt(i));
+        }
+    }
+    
+    /**
+     * Writes int values to byte[] at the given offset
+     * @param dst   destination byte[], at least off + 4 * src.length bytes
+     * @param off   offset
+     * @param src   int values
+     */
+    public static void putInts(byte[] dst, int off, int[] src) {
+        for (int i = 0; i < src.length; i++) {
+            ByteArrayAccess.putInt(dst, off + i * 4, src[i]);
+        }
+    }
+    
+    /**
+     * Writes long values to byte[] at the given offset
+     * @param dst   destination byte[], at least off + 8 * src.length bytes
+     * @param off   offset
+     * @param src   long values
+     */
+    public static void putLongs(byte[] dst, int off, long[] src) {
+        for (int i = 0; i < src.length; i++) {
+            ByteArrayAccess.putLong(dst, off + i * 8, src[i]);
+        }
+    }
+    
+    /**
+     * Reads a short value from byte[] at the given offset
+     * @param src   source byte[], at least off + 2 bytes
+     * @param off   offset
+     * @return  short value
+     */
+    public static short getShort(byte[] src, int off) {
+        return ByteArrayAccess.getShort(src, off);
+    }
+    
+    /**
+     * Reads an int value from byte[] at the given offset
+     * @param src   source byte[], at least off + 4 bytes
+     * @param off   offset
+     * @return  int value
+     */
+    public static int getInt(byte[] src, int off) {
+        return ByteArrayAccess.getInt(src, off);
+    }
+    
+    /**
+     * Reads a long value from byte[] at the given offset
+     * @param src   source byte[], at least off + 8 bytes
+     * @param off   offset
+     * @return  long value
+     */
+    public static long getLong(byte[] src, int off) {
+        return ByteArrayAccess.getLong(src, off);
+    }
+    
+    /**
+     * Reads a double value from byte[] at the given offset, using Double.longBitsToDouble(long)
+     * @param src   source byte[], at least off + 8 bytes
+     * @param off   offset
+     * @return  double value
+     */
+    public static double getDouble(byte[] src, int off) {
+        return Double.longBitsToDouble(ByteArrayAccess.getLong(src, off));
+    }
+    
+    /**
+     * Reads char values from byte[] at the given offset, using 2 bytes per char
+     * @param src   source byte[], at least off + 2 * dst.length bytes
+     * @param off   offset
+     * @param dst   destination char[]
+     */
+    public static void getChars(byte[] src, int off, char[] dst) {
+        for (int i = 0; i < dst.length; i++) {
+            dst[i] = (char)ByteArrayAccess.getShort(src, off + i * 2);
+        }
+    }
+    
+    /**
+     * Reads int values from byte[] at the given offset
+     * @param src   source byte[], at least off + 4 * dst.length bytes
+     * @param off   offset
+     * @param dst   destination int[]
+     */
+    public static void getInts(byte[] src, int off, int[] dst) {
+        for (int i = 0; i < dst.length; i++) {
+            dst[i] = ByteArrayAccess.getInt(src, off + i * 4);
+        }
+    }
+    
+    /**
+     * Reads long values from byte[] at the given offset
+     * @param src   source byte[], at least off + 8 * dst.length bytes
+     * @param off   offset
+     * @param dst   destination long[]
+     */
+    public static void getLongs(byte[] src, int off, long[] dst) {
+        for (int i = 0; i < dst.length; i++) {
+            dst[i] = ByteArrayAccess.getLong(src, off + i * 8);
+        }
+    }
+    
+    /**
+     * Zig-zag encodes a long value, mapping small negative and positive values to small positive values
+     * @param l long value
+     * @return  zig-zag encoded value
+     */
+    public static long toZigZag(long l) {
+        return (l << 1) ^ (l >> 63);
+    }
+    
+    /**
+     * Decodes a zig-zag encoded long value
+     * @param l zig-zag encoded value
+     * @return  long value
+     */
+    public static long fromZigZag(long l) {
+        return (l >>> 1) ^ -(l & 1);
+    }
+    
+    /**
+     * Converts a long value to a varint byte[], using 7 bits per byte and the high bit as continuation flag
+     * @param l long value, treated as unsigned
+     * @return  byte[] of length 1 to 10
+     */
+    public static byte[] fromVarLong(long l) {
+        byte[] data = new byte[varLongSize(l)];
+        for (int i = 0; i < data.length - 1; i++) {
+            data[i] = (byte) ((l & 0x7F) | 0x80);
+            l >>>= 7;
+        }
+        data[data.length - 1] = (byte) l;
+        return data;
+    }
+    
+    /**
+     * Returns the number of bytes of a varint
+     * @param l long value, treated as unsigned
+     * @return  number of bytes, 1 to 10
+     */
+    public static int varLongSize(long l) {
+        int size = 1;
+        while ((l & ~0x7FL) != 0) {
+            l >>>= 7;
+            size++;
+        }
+        return size;
+    }
+    
     /**
      * Converts a byte[] to short, using 2 bytes
      * @param b byte[]
@@ -83,8 +281,7 @@ public class ByteConversion {
         if ((b == null) || (b.length < 2)) {
             return Short.MIN_VALUE;
         }
-        short s = (short)(b[0] << 8 | b[1]);
-        return s;
+        return ByteArrayAccess.getShort(b, 0);
     }
     
     /**
@@ -96,11 +293,7 @@ public class ByteConversion {
         if ((b == null) || (b.length < 4)) {
             return Integer.MIN_VALUE;
         }
-        int i =   (int)(0xff & b[0]) << 24 
-                | (int)(0xff & b[1]) << 16 
-                | (int)(0xff & b[2]) << 8 
-                | (int)(0xff & b[3]);
-        return i;
+        return ByteArrayAccess.getInt(b, 0);
     }
     
     /**
@@ -112,15 +305,7 @@ public class ByteConversion {
         if ((b == null) || (b.length < 8)) {
             return Long.MIN_VALUE;
         }
-        long l =  (long)(0xff & b[0]) << 56 
-                | (long)(0xff & b[1]) << 48 
-                | (long)(0xff & b[2]) << 40 
-                | (long)(0xff & b[3]) << 32 
-                | (long)(0xff & b[4]) << 24 
-                | (long)(0xff & b[5]) << 16 
-                | (long)(0xff & b[6]) << 8 
-                | (long)(0xff & b[7]);
-        return l;
+        return ByteArrayAccess.getLong(b, 0);
     }
     
     /**
@@ -132,8 +317,7 @@ public class ByteConversion {
         if ((b == null) || (b.length < 8)) {
             return Double.NaN;
         }
-        long l = toLong(b);
-        return Double.longBitsToDouble(l);
+        return Double.longBitsToDouble(ByteArrayAccess.getLong(b, 0));
     }
     
 }
@@ -0,0 +1,192 @@
+package com.github.nilscoding.seqdatastore;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Random-access reader of a store file, decoding whole blocks of the block statistics
+ * and keeping them in a (shared) block cache<br>
+ * Safe for concurrent use, the channel is only read with positional reads. A block which is too large for the cache
+ * is not decoded as a whole by read(long), only the fields up to the requested one are skipped.
+ * @author NilsCoding
+ */
+public class CachedBlockReader {
+
+    protected final FileChannel channel;
+    protected final Object fileKey;
+    protected final List<BlockStatistics.Block> blocks;
+    protected final BlockCache cache;
+
+    /**
+     * Creates a new cached block reader
+     * @param channel       file channel of the store file
+     * @param fileKey       key of the file in the cache, e.g. the canonical file path
+     * @param statistics    block statistics of the store file
+     * @param cache         block cache, can be shared by several readers
+     */
+    public CachedBlockReader(FileChannel channel, Object fileKey, BlockStatistics statistics, BlockCache cache) {
+        this.channel = channel;
+        this.fileKey = fileKey;
+        this.blocks = statistics.getBlocks();
+        this.cache = cache;
+    }
+
+    /**
+     * Reads the field at the given position
+     * @param position  position as reported by BinaryInputData.getPosition()
+     * @return  field or null if there is no field at the position or reading fails
+     */
+    public BinaryInputData read(long position) {
+        BlockStatistics.Block block = this.findBlock(position);
+        if (block == null) {
+            return null;
+        }
+        DecodedBlock decoded = this.cache.get(this.fileKey, block.getStart());
+        if (decoded != null) {
+            return decoded.getField(position);
+        }
+        if (!this.cache.admit(this.weight(block.getLength(), 0))) {
+            return this.decodeField(block, position);
+        }
+        decoded = this.decode(block);
+        if (decoded != null) {
+            decoded = this.cache.put(this.fileKey, block.getStart(), decoded);
+        }
+        return (decoded != null) ? decoded.getField(position) : null;
+    }
+
+    /**
+     * Returns the decoded block, from the cache or by reading and decoding it
+     * @param block block statistics of the block
+     * @return  decoded block or null if reading fails
+     */
+    public DecodedBlock getBlock(BlockStatistics.Block block) {
+        DecodedBlock decoded = this.cache.get(this.fileKey, block.getStart());
+        if (decoded != null) {
+            return decoded;
+        }
+        decoded = this.decode(block);
+        if (decoded == null) {
+            return null;
+        }
+        return this.cache.put(this.fileKey, block.getStart(), decoded);
+    }
+
+    /**
+     * Returns the block containing the given position
+     * @param position  position
+     * @return  block or null if no block contains the position
+     */
+    protected BlockStatistics.Block findBlock(long position) {
+        int low = 0;
+        int high = this.blocks.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            BlockStatistics.Block block = this.blocks.get(mid);
+            if (position < block.getStart()) {
+                high = mid - 1;
+            } else if (position >= block.getEnd()) {
+                low = mid + 1;
+            } else {
+                return block;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Internally reads and decodes a block
+     * @param block block statistics of the block
+     * @return  decoded block or null if reading fails
+     */
+    protected DecodedBlock decode(BlockStatistics.Block block) {
+        byte[] data = this.readBlock(block);
+        if (data == null) {
+            return null;
+        }
+        BinaryInput input = this.openInput(block, data);
+        List<BinaryInputData> fields = new ArrayList<>();
+        BinaryInputData field;
+        while ((field = input.read()) != null) {
+            fields.add(field);
+        }
+        return new DecodedBlock(fields.toArray(new BinaryInputData[fields.size()]), this.weight(data.length, fields.size()));
+    }
+
+    /**
+     * Internally reads a block and decodes only the field at the given position,
+     * skipping the fields before it without creating binary input data
+     * @param block     block statistics of the block
+     * @param position  position of the field
+     * @return  field or null if there is no field at the position or reading fails
+     */
+    protected BinaryInputData decodeField(BlockStatistics.Block block, long position) {
+        byte[] data = this.readBlock(block);
+        if (data == null) {
+            return null;
+        }
+        BinaryInput input = this.openInput(block, data);
+        while (true) {
+            // position of the next field after its trailers
+            long next = input.getRelativePosition();
+            while ((next < block.getEnd()) && (data[(int)(next - block.getStart())] == MagicMarker.TRAILER)) {
+                next += 5;
+            }
+            if ((next >= position) || (!input.next())) {
+                break;
+            }
+        }
+        BinaryInputData field = input.read();
+        return ((field != null) && (field.getPosition() == position)) ? field : null;
+    }
+
+    /**
+     * Internally reads the data of a block with positional reads
+     * @param block block statistics of the block
+     * @return  data or null if reading fails
+     */
+    protected byte[] readBlock(BlockStatistics.Block block) {
+        try {
+            if (block.getLength() > Integer.MAX_VALUE) {
+                return null;
+            }
+            byte[] data = new byte[(int)block.getLength()];
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                if (this.channel.read(buffer, block.getStart() + buffer.position()) < 0) {
+                    return null;
+                }
+            }
+            return data;
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Internally creates a binary input for the data of a block, resolving references with the channel
+     * @param block block statistics of the block
+     * @param data  data of the block
+     * @return  binary input
+     */
+    protected BinaryInput openInput(BlockStatistics.Block block, byte[] data) {
+        BinaryInput input = new BinaryInput(new ByteArrayInputStream(data), block.getStart(), data.length);
+        input.setReferenceChannel(this.channel);
+        return input;
+    }
+
+    /**
+     * Internally estimates the size of a decoded block: encoded data plus object overhead per field
+     * @param length        length of the block in bytes
+     * @param fieldCount    number of fields
+     * @return  (estimated) size in bytes
+     */
+    protected long weight(long length, int fieldCount) {
+        return length * 2L + fieldCount * 48L;
+    }
+
+}
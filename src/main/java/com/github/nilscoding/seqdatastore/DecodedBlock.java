@@ -0,0 +1,60 @@
+package com.github.nilscoding.seqdatastore;
+
+import java.util.Arrays;
+
+/**
+ * Decoded block, all fields of one block with their positions, see BlockCache<br>
+ * The fields are shared by all users of the cache, so only copies of them are returned.
+ * @author NilsCoding
+ */
+public class DecodedBlock {
+    
+    protected final BinaryInputData[] fields;
+    protected final long[] positions;
+    protected final long weight;
+    
+    /**
+     * Creates a new decoded block
+     * @param fields    fields in the order of the data
+     * @param weight    (estimated) size in bytes
+     */
+    public DecodedBlock(BinaryInputData[] fields, long weight) {
+        this.fields = fields;
+        this.positions = new long[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            this.positions[i] = fields[i].getPosition();
+        }
+        this.weight = weight;
+    }
+    
+    /**
+     * Returns a copy of the field at the given position
+     * @param position  position as reported by BinaryInputData.getPosition()
+     * @return  field or null if there is no field at the position
+     */
+    public BinaryInputData getField(long position) {
+        int index = Arrays.binarySearch(this.positions, position);
+        return (index >= 0) ? this.fields[index].copy() : null;
+    }
+    
+    /**
+     * Returns copies of all fields
+     * @return  fields in the order of the data
+     */
+    public BinaryInputData[] getFields() {
+        BinaryInputData[] result = new BinaryInputData[this.fields.length];
+        for (int i = 0; i < this.fields.length; i++) {
+            result[i] = this.fields[i].copy();
+        }
+        return result;
+    }
+    
+    /**
+     * Returns the (estimated) size in bytes
+     * @return  size in bytes
+     */
+    public long getWeight() {
+        return weight;
+    }
+    
+}
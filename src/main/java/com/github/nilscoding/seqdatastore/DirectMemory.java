@@ -0,0 +1,66 @@
+package com.github.nilscoding.seqdatastore;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+/**
+ * Explicit release of the memory of direct ByteBuffers, without waiting for the garbage collector<br>
+ * Uses sun.misc.Unsafe.invokeCleaner on Java 9+ and the cleaner of the buffer on Java 8, both looked up
+ * reflectively. The buffer and all its views must not be used after releasing it.
+ * @author NilsCoding
+ */
+final class DirectMemory {
+    
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+    
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+        } catch (Exception ex) {
+            // Java 8, use the cleaner of the buffer
+            invokeCleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+    
+    private DirectMemory() { }
+    
+    /**
+     * Releases the memory of a direct buffer
+     * @param buffer    direct buffer, not a view (duplicate or slice) of another buffer
+     * @return  true if released, false if not supported, the garbage collector releases the memory then
+     */
+    static boolean free(ByteBuffer buffer) {
+        if ((buffer == null) || (!buffer.isDirect())) {
+            return false;
+        }
+        try {
+            if (INVOKE_CLEANER != null) {
+                INVOKE_CLEANER.invoke(UNSAFE, buffer);
+                return true;
+            }
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner == null) {
+                return false;
+            }
+            Method cleanMethod = cleaner.getClass().getMethod("clean");
+            cleanMethod.setAccessible(true);
+            cleanMethod.invoke(cleaner);
+            return true;
+        } catch (Exception ex) {
+            return false;
+        }
+    }
+    
+}
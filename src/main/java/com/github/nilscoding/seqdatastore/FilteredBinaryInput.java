@@ -0,0 +1,82 @@
+package com.github.nilscoding.seqdatastore;
+
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Binary input which skips whole blocks that cannot match a block predicate<br>
+ * The fields of matching blocks are returned unfiltered, the caller still has to check the values.
+ * The stream must support skip(n) and must start at the same position as the data of the block statistics.
+ * Data after the last finished block, written after the last endBlock(), has no statistics and is returned unfiltered.
+ * @author NilsCoding
+ */
+public class FilteredBinaryInput {
+    
+    protected final BinaryInput input;
+    protected final List<BlockStatistics.Block> blocks;
+    protected final BlockPredicate predicate;
+    protected int blockIndex = 0;
+    protected boolean blockChecked = false;
+    
+    /**
+     * Creates a new filtered binary input
+     * @param inStream      input stream
+     * @param statistics    block statistics of the data
+     * @param predicate     block predicate
+     */
+    public FilteredBinaryInput(InputStream inStream, BlockStatistics statistics, BlockPredicate predicate) {
+        this(new BinaryInput(inStream), statistics, predicate);
+    }
+    
+    /**
+     * Creates a new filtered binary input
+     * @param input         binary input, used for reading and skipping
+     * @param statistics    block statistics of the data
+     * @param predicate     block predicate
+     */
+    public FilteredBinaryInput(BinaryInput input, BlockStatistics statistics, BlockPredicate predicate) {
+        this.input = input;
+        this.blocks = statistics.getBlocks();
+        this.predicate = predicate;
+    }
+    
+    /**
+     * Reads the next input data from a block which might match or after the last block, skipping all other blocks
+     * @return  resulting binary input data or null if invalid or no more data
+     */
+    public BinaryInputData read() {
+        while (this.blockIndex < this.blocks.size()) {
+            BlockStatistics.Block block = this.blocks.get(this.blockIndex);
+            long pos = this.input.getRelativePosition();
+            if (pos >= block.getEnd()) {
+                this.blockIndex++;
+                this.blockChecked = false;
+                continue;
+            }
+            if (!this.blockChecked) {
+                if (!this.predicate.mayMatch(block)) {
+                    if (this.input.skip(block.getEnd() - pos) < block.getEnd() - pos) {
+                        return null;
+                    }
+                    continue;
+                }
+                if (pos < block.getStart()) {
+                    this.input.skip(block.getStart() - pos);
+                }
+                this.blockChecked = true;
+            }
+            return this.input.read();
+        }
+        // data after the last block is not covered by the statistics
+        return this.input.read();
+    }
+    
+    /**
+     * Returns the underlaying binary input
+     * @return  binary input
+     */
+    public BinaryInput getInput() {
+        return input;
+    }
+    
+}
@@ -0,0 +1,381 @@
+package com.github.nilscoding.seqdatastore;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Persistent, memory-mapped key index of a store file<br>
+ * Maps the value of a key field (INT, LONG or STRING) of each record to the position of that field,
+ * as reported by BinaryInputData.getPosition(). The index file contains entries of key and position,
+ * sorted by key, which are found with a binary search. STRING keys are stored as 64-bit hashes,
+ * so their positions are candidates which find(String, FileChannel) verifies against the store file.
+ * An index file can hold up to about 130 million entries.<br>
+ * The positions are read without the preceding fields, so delta encoded store files (LONG_DELTA or DATE_DELTA
+ * fields) cannot be indexed and build(...) fails for them.
+ * @author NilsCoding
+ */
+public class KeyIndex implements Closeable {
+
+    protected static final long MAGIC = 0x5344534944583031L;
+    /**
+     * version of the index file format, changes whenever keys or layout change
+     */
+    public static final int FORMAT_VERSION = 1;
+    protected static final int HEADER_SIZE = 32;
+    protected static final int ENTRY_SIZE = 16;
+
+    protected final RandomAccessFile file;
+    protected final MappedByteBuffer buffer;
+    protected final byte keyType;
+    protected final int count;
+
+    /**
+     * Opens an index file
+     * @param indexFile index file as written by build(...)
+     * @throws IOException  if the file cannot be opened or is invalid
+     */
+    public KeyIndex(File indexFile) throws IOException {
+        this.file = new RandomAccessFile(indexFile, "r");
+        try {
+            long length = this.file.length();
+            if ((length < HEADER_SIZE) || (length > Integer.MAX_VALUE)) {
+                throw new IOException("invalid index file size");
+            }
+            this.buffer = this.file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+            long entries = this.buffer.getLong(16);
+            if ((this.buffer.getLong(0) != MAGIC) || (entries < 0) || (HEADER_SIZE + entries * ENTRY_SIZE > length)) {
+                throw new IOException("invalid index file");
+            }
+            if (this.buffer.getInt(12) != FORMAT_VERSION) {
+                throw new IOException("unsupported index file version " + this.buffer.getInt(12));
+            }
+            this.keyType = this.buffer.get(8);
+            this.count = (int)entries;
+        } catch (IOException ex) {
+            this.file.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Returns the key type
+     * @return  INT, LONG or STRING
+     */
+    public byte getKeyType() {
+        return keyType;
+    }
+
+    /**
+     * Returns the number of entries
+     * @return  number of entries
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the positions of the given INT or LONG key
+     * @param key   key
+     * @return  positions in ascending order, empty if not found
+     */
+    public long[] lookup(long key) {
+        int first = this.firstIndex(key);
+        int last = first;
+        while ((last < this.count) && (this.keyAt(last) == key)) {
+            last++;
+        }
+        long[] positions = new long[last - first];
+        for (int i = first; i < last; i++) {
+            positions[i - first] = this.positionAt(i);
+        }
+        return positions;
+    }
+
+    /**
+     * Returns the candidate positions of the given STRING key, which can include positions of other keys with the same hash
+     * @param key   key
+     * @return  positions in ascending order, empty if not found
+     */
+    public long[] lookup(String key) {
+        return this.lookup(hash(key));
+    }
+
+    /**
+     * Returns the verified positions of the given STRING key
+     * @param key   key
+     * @param store file channel of the store file, only read with positional reads
+     * @return  positions in ascending order, empty if not found
+     * @throws IOException  if reading the store file fails
+     */
+    public long[] find(String key, FileChannel store) throws IOException {
+        long[] candidates = this.lookup(key);
+        long[] positions = new long[candidates.length];
+        int found = 0;
+        byte[] header = new byte[5];
+        for (long pos : candidates) {
+            if ((readAt(store, pos, header)) && (header[0] == MagicMarker.STRING)
+                    && (ByteConversion.getInt(header, 1) == key.length())) {
+                byte[] data = new byte[key.length() * 2];
+                if (readAt(store, pos + 5, data) && (equalChars(data, key))) {
+                    positions[found++] = pos;
+                }
+            }
+        }
+        return Arrays.copyOf(positions, found);
+    }
+
+    /**
+     * Closes the index file, the mapping stays valid until it is garbage collected
+     * @throws IOException  if closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        this.file.close();
+    }
+
+    /**
+     * Builds an index file for a store file with records
+     * @param storeFile         store file
+     * @param fieldsPerRecord   number of fields per record
+     * @param keyField          index of the key field in the record
+     * @param keyType           type of the key field: INT, LONG or STRING, fields of other types are not indexed
+     * @param indexFile         index file to write
+     * @return  true if written successfully, false otherwise, e.g. if the store file is delta encoded
+     */
+    public static boolean build(File storeFile, int fieldsPerRecord, int keyField, byte keyType, File indexFile) {
+        if ((keyType != MagicMarker.INT) && (keyType != MagicMarker.LONG) && (keyType != MagicMarker.STRING)) {
+            return false;
+        }
+        long[] keys = new long[1024];
+        long[] positions = new long[1024];
+        int count = 0;
+        try (FileInputStream in = new FileInputStream(storeFile)) {
+            BinaryInput input = new BinaryInput(in);
+            input.setMarkerMask(keyType);
+            long fieldIndex = 0L;
+            BinaryInputData data;
+            while ((data = input.read()) != null) {
+                if ((input.getLastMarker() == MagicMarker.LONG_DELTA) || (input.getLastMarker() == MagicMarker.DATE_DELTA)) {
+                    return false;
+                }
+                if (((fieldIndex++ % fieldsPerRecord) != keyField) || (data.getType() != keyType) || (data.getValue() == null)) {
+                    continue;
+                }
+                if (count == keys.length) {
+                    keys = Arrays.copyOf(keys, count * 2);
+                    positions = Arrays.copyOf(positions, count * 2);
+                }
+                Object value = data.getValue();
+                if (keyType == MagicMarker.STRING) {
+                    keys[count] = hash((String)value);
+                } else {
+                    keys[count] = ((Number)value).longValue();
+                }
+                positions[count] = data.getPosition();
+                count++;
+            }
+        } catch (Exception ex) {
+            return false;
+        }
+        sort(keys, positions, 0, count - 1);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile), 1024 * 1024))) {
+            out.writeLong(MAGIC);
+            out.writeByte(keyType);
+            out.write(new byte[3]);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(count);
+            out.writeLong(0L);
+            for (int i = 0; i < count; i++) {
+                out.writeLong(keys[i]);
+                out.writeLong(positions[i]);
+            }
+            return true;
+        } catch (Exception ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Calculates the 64-bit hash of a STRING key (FNV-1a of the 2-byte encoding of each character, mixed),
+     * which is part of the index file format
+     * @param s String key
+     * @return  hash value
+     */
+    protected static long hash(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            h = (h ^ ((c >> 8) & 0xFF)) * 0x100000001b3L;
+            h = (h ^ (c & 0xFF)) * 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Internally returns the index of the first entry with a key greater than or equal to the given key
+     * @param key   key
+     * @return  index, size() if all keys are smaller
+     */
+    protected int firstIndex(long key) {
+        int low = 0;
+        int high = this.count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (this.keyAt(mid) < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Internally returns the key of an entry
+     * @param index entry index
+     * @return  key
+     */
+    protected long keyAt(int index) {
+        return this.buffer.getLong(HEADER_SIZE + index * ENTRY_SIZE);
+    }
+
+    /**
+     * Internally returns the position of an entry
+     * @param index entry index
+     * @return  position
+     */
+    protected long positionAt(int index) {
+        return this.buffer.getLong(HEADER_SIZE + index * ENTRY_SIZE + 8);
+    }
+
+    /**
+     * Internally sorts the entries by key and position (quicksort, recursing into the smaller part)
+     * @param keys      keys
+     * @param positions positions
+     * @param low       first index
+     * @param high      last index
+     */
+    protected static void sort(long[] keys, long[] positions, int low, int high) {
+        while (high - low > 16) {
+            int mid = (low + high) >>> 1;
+            // median of three as pivot
+            if (compare(keys, positions, mid, low) < 0) {
+                swap(keys, positions, mid, low);
+            }
+            if (compare(keys, positions, high, low) < 0) {
+                swap(keys, positions, high, low);
+            }
+            if (compare(keys, positions, high, mid) < 0) {
+                swap(keys, positions, high, mid);
+            }
+            long pivotKey = keys[mid];
+            long pivotPos = positions[mid];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while ((keys[i] < pivotKey) || ((keys[i] == pivotKey) && (positions[i] < pivotPos))) {
+                    i++;
+                }
+                while ((keys[j] > pivotKey) || ((keys[j] == pivotKey) && (positions[j] > pivotPos))) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(keys, positions, i, j);
+                    i++;
+                    j--;
+                }
+            }
+            if (j - low < high - i) {
+                sort(keys, positions, low, j);
+                low = i;
+            } else {
+                sort(keys, positions, i, high);
+                high = j;
+            }
+        }
+        // insertion sort for small parts
+        for (int i = low + 1; i <= high; i++) {
+            for (int j = i; (j > low) && (compare(keys, positions, j, j - 1) < 0); j--) {
+                swap(keys, positions, j, j - 1);
+            }
+        }
+    }
+
+    /**
+     * Internally compares two entries
+     * @param keys      keys
+     * @param positions positions
+     * @param a         first index
+     * @param b         second index
+     * @return  comparison result
+     */
+    protected static int compare(long[] keys, long[] positions, int a, int b) {
+        int result = Long.compare(keys[a], keys[b]);
+        return (result != 0) ? result : Long.compare(positions[a], positions[b]);
+    }
+
+    /**
+     * Internally swaps two entries
+     * @param keys      keys
+     * @param positions positions
+     * @param a         first index
+     * @param b         second index
+     */
+    protected static void swap(long[] keys, long[] positions, int a, int b) {
+        long k = keys[a];
+        keys[a] = keys[b];
+        keys[b] = k;
+        long p = positions[a];
+        positions[a] = positions[b];
+        positions[b] = p;
+    }
+
+    /**
+     * Internally reads data at the given position without changing the channel position
+     * @param channel   file channel
+     * @param pos       position
+     * @param data      destination, completely filled
+     * @return  true if the data was read, false if the channel ended
+     * @throws IOException  if reading fails
+     */
+    protected static boolean readAt(FileChannel channel, long pos, byte[] data) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(data);
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, pos + buf.position()) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Internally compares encoded chars with a String
+     * @param data  2-byte encoded chars
+     * @param s     String
+     * @return  true if equal
+     */
+    protected static boolean equalChars(byte[] data, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if ((char)ByteConversion.getShort(data, i * 2) != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -12,6 +12,9 @@ public final class MagicMarker {
     //   0b01......     next data is a 4-byte int to indicate the length of the following data
     //   0b10......     next data is a 8-byte long to indicate the length of the following data
     //   0b00......     this is a "direct" data type which does not require length-based processing
+    //   0b0001nnnn     delta-of-delta encoded variant of a direct type, followed by a zig-zag encoded varint
+    //   REFERENCE      repeated BYTES or CUSTOM_INT payload, followed by the varint distance back to the
+    //                  original field and the varint payload length
     //   TYPE and TYPE_NULL differ in both the null marker and the length flag 
     //     (and the _NULL flag doesn't contain the length indicator because it has no data length)
     //
@@ -60,6 +63,27 @@ public final class MagicMarker {
      * type: java.lang.String, value is null
      */
     public static final byte STRING_NULL    = (byte)0b00100111;
+    /**
+     * type: long, delta-of-delta encoded relative to the previous long value in the block<br>
+     * BinaryInput reports this type as LONG
+     */
+    public static final byte LONG_DELTA     = (byte)0b00010010;
+    /**
+     * type: java.util.Date, delta-of-delta encoded relative to the previous date value in the block<br>
+     * BinaryInput reports this type as DATE
+     */
+    public static final byte DATE_DELTA     = (byte)0b00010100;
+    /**
+     * trailer, followed by a 4-byte int with the length of the preceding entry (excluding the trailer)<br>
+     * Allows reading backwards, BinaryInput skips trailers when reading forward
+     */
+    public static final byte TRAILER        = (byte)0b00001000;
+    /**
+     * reference to an earlier BYTES or CUSTOM_INT field with the same payload, followed by the varint distance
+     * back to that field and the varint payload length<br>
+     * BinaryInput reports this type as the type of the referenced field
+     */
+    public static final byte REFERENCE      = (byte)0b00001001;
     /**
      * custom type, length marker of type int
      */
@@ -102,6 +126,22 @@ public final class MagicMarker {
      * writable marker for type java.util.Date
      */
     public static final byte[] B_DATE       = new byte[] { DATE };
+    /**
+     * writable marker for delta-of-delta encoded type long
+     */
+    public static final byte[] B_LONG_DELTA = new byte[] { LONG_DELTA };
+    /**
+     * writable marker for delta-of-delta encoded type java.util.Date
+     */
+    public static final byte[] B_DATE_DELTA = new byte[] { DATE_DELTA };
+    /**
+     * writable marker for a trailer
+     */
+    public static final byte[] B_TRAILER    = new byte[] { TRAILER };
+    /**
+     * writable marker for a reference to deduplicated data
+     */
+    public static final byte[] B_REFERENCE  = new byte[] { REFERENCE };
     /**
      * writable marker for type java.util.Date with value null
      */
@@ -0,0 +1,290 @@
+package com.github.nilscoding.seqdatastore;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Off-heap in-memory store, holding the data in chunks of direct ByteBuffers<br>
+ * Use getOutputStream() with a BinaryOutput to append data and getInputStream(long) or read(long)
+ * to scan or access it. Appending and reading are not synchronized, data is only appended by one writer.
+ * close() releases the direct memory right away instead of waiting for the garbage collector.
+ * The store and its input streams are positional readers, so references of deduplicated data are resolved.
+ * @author NilsCoding
+ */
+public class OffHeapStore implements Closeable, PositionalReader {
+
+    /**
+     * default chunk size in bytes
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+    protected final int chunkSize;
+    protected final List<ByteBuffer> chunks = new ArrayList<>();
+    protected long size = 0L;
+
+    /**
+     * Creates a new empty off-heap store with the default chunk size
+     */
+    public OffHeapStore() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates a new empty off-heap store
+     * @param chunkSize chunk size in bytes
+     * @throws IllegalArgumentException if the chunk size is not positive
+     */
+    public OffHeapStore(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunk size must be positive");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Returns the number of bytes stored
+     * @return  number of bytes
+     */
+    public long size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the chunk size
+     * @return  chunk size in bytes
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Removes all data, the chunks are kept for reuse
+     */
+    public void clear() {
+        this.size = 0L;
+    }
+
+    /**
+     * Removes all data and releases the memory of all chunks, the store can be used again afterwards<br>
+     * Must not be called while another thread reads or writes, streams of this store only see new data afterwards.
+     */
+    @Override
+    public void close() {
+        this.size = 0L;
+        for (ByteBuffer chunk : this.chunks) {
+            DirectMemory.free(chunk);
+        }
+        this.chunks.clear();
+    }
+
+    /**
+     * Returns an output stream appending to this store
+     * @return  output stream
+     */
+    public OutputStream getOutputStream() {
+        return new OutputStream() {
+            @Override
+            public void write(int b) {
+                ByteBuffer chunk = chunkForWrite();
+                chunk.put((int)(size % chunkSize), (byte)b);
+                size++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                while (len > 0) {
+                    ByteBuffer chunk = chunkForWrite().duplicate();
+                    int chunkPos = (int)(size % chunkSize);
+                    int count = Math.min(len, chunkSize - chunkPos);
+                    chunk.position(chunkPos);
+                    chunk.put(b, off, count);
+                    size += count;
+                    off += count;
+                    len -= count;
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns an input stream reading from the given position to the current end of the data<br>
+     * The stream is a PositionalReader of this store, so a BinaryInput created with the same position resolves references.
+     * @param position  start position
+     * @return  input stream
+     */
+    public InputStream getInputStream(final long position) {
+        return new StoreInputStream(position);
+    }
+
+    /**
+     * Reads data at the given position
+     * @param position  position of the first byte
+     * @param data      destination
+     * @param off       offset in destination
+     * @param len       number of bytes
+     * @return  number of bytes read, less than len only if the data ends
+     */
+    @Override
+    public int read(long position, byte[] data, int off, int len) {
+        int total = 0;
+        while ((len > 0) && (position >= 0) && (position < this.size)) {
+            ByteBuffer chunk = this.chunks.get((int)(position / this.chunkSize)).duplicate();
+            int chunkPos = (int)(position % this.chunkSize);
+            int count = (int)Math.min(Math.min(len, this.chunkSize - chunkPos), this.size - position);
+            chunk.position(chunkPos);
+            chunk.get(data, off, count);
+            position += count;
+            off += count;
+            len -= count;
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Reads the data at the given position
+     * @param position  position as reported by BinaryInputData.getPosition()
+     * @return  resulting binary input data or null if invalid
+     */
+    public BinaryInputData read(long position) {
+        if ((position < 0) || (position >= this.size)) {
+            return null;
+        }
+        return new BinaryInput(this.getInputStream(position), position, 256).read();
+    }
+
+    /**
+     * Writes all data to a store file, replacing its content
+     * @param file  file
+     * @return  true if written successfully, false otherwise
+     */
+    public boolean writeTo(File file) {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                FileChannel channel = raf.getChannel()) {
+            channel.truncate(0);
+            ByteBuffer[] buffers = new ByteBuffer[(int)((this.size + this.chunkSize - 1) / this.chunkSize)];
+            for (int i = 0; i < buffers.length; i++) {
+                ByteBuffer chunk = this.chunks.get(i).duplicate();
+                chunk.clear();
+                chunk.limit((int)Math.min(this.chunkSize, this.size - (long)i * this.chunkSize));
+                buffers[i] = chunk;
+            }
+            long written = 0L;
+            while (written < this.size) {
+                written += channel.write(buffers);
+            }
+            return true;
+        } catch (Exception ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Loads a store file, appending its data to this store
+     * @param file  file
+     * @return  true if loaded successfully, false otherwise
+     */
+    public boolean loadFrom(File file) {
+        long startSize = this.size;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+                FileChannel channel = raf.getChannel()) {
+            long remaining = channel.size();
+            while (remaining > 0) {
+                ByteBuffer chunk = this.chunkForWrite().duplicate();
+                int chunkPos = (int)(this.size % this.chunkSize);
+                chunk.position(chunkPos);
+                chunk.limit((int)Math.min(this.chunkSize, chunkPos + remaining));
+                while (chunk.hasRemaining()) {
+                    int count = channel.read(chunk);
+                    if (count < 0) {
+                        this.size = startSize;
+                        return false;
+                    }
+                    this.size += count;
+                    remaining -= count;
+                }
+            }
+            return true;
+        } catch (Exception ex) {
+            this.size = startSize;
+            return false;
+        }
+    }
+
+    /**
+     * Internally returns the chunk for the next write, allocating it if needed
+     * @return  chunk
+     */
+    protected ByteBuffer chunkForWrite() {
+        int index = (int)(this.size / this.chunkSize);
+        while (this.chunks.size() <= index) {
+            this.chunks.add(ByteBuffer.allocateDirect(this.chunkSize));
+        }
+        return this.chunks.get(index);
+    }
+
+    /**
+     * Input stream of the store, reading from a position to the current end of the data
+     */
+    protected class StoreInputStream extends InputStream implements PositionalReader {
+
+        protected long pos;
+
+        /**
+         * Creates a new input stream
+         * @param position  start position
+         */
+        protected StoreInputStream(long position) {
+            this.pos = position;
+        }
+
+        @Override
+        public int read() {
+            if (this.pos >= size) {
+                return -1;
+            }
+            int b = chunks.get((int)(this.pos / chunkSize)).get((int)(this.pos % chunkSize)) & 0xFF;
+            this.pos++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (this.pos >= size) {
+                return -1;
+            }
+            int count = OffHeapStore.this.read(this.pos, b, off, len);
+            this.pos += count;
+            return count;
+        }
+
+        @Override
+        public int read(long position, byte[] data, int off, int len) {
+            return OffHeapStore.this.read(position, data, off, len);
+        }
+
+        @Override
+        public long skip(long n) {
+            long count = Math.max(0L, Math.min(n, size - this.pos));
+            this.pos += count;
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return (int)Math.min(Integer.MAX_VALUE, size - this.pos);
+        }
+
+    }
+
+}
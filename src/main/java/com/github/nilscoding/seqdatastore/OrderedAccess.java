@@ -0,0 +1,58 @@
+package com.github.nilscoding.seqdatastore;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+
+/**
+ * Ordered long access to (mapped) byte buffers, Java 8 implementation<br>
+ * Uses the load and store fences of sun.misc.Unsafe for acquire/release semantics, looked up reflectively
+ * because compiling for release 8 does not expose sun.misc. The multi-release JAR contains a Java 9+ version
+ * of this class using VarHandles.
+ * @author NilsCoding
+ */
+final class OrderedAccess {
+    
+    private static final MethodHandle LOAD_FENCE;
+    private static final MethodHandle STORE_FENCE;
+    
+    static {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            Object unsafe = field.get(null);
+            MethodType type = MethodType.methodType(void.class);
+            LOAD_FENCE = MethodHandles.lookup().findVirtual(unsafeClass, "loadFence", type).bindTo(unsafe);
+            STORE_FENCE = MethodHandles.lookup().findVirtual(unsafeClass, "storeFence", type).bindTo(unsafe);
+        } catch (Exception ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+    
+    private OrderedAccess() { }
+    
+    static long getLongAcquire(ByteBuffer b, int index) {
+        long l = b.getLong(index);
+        // later loads and stores must not move before the load of the value
+        try {
+            LOAD_FENCE.invokeExact();
+        } catch (Throwable ex) {
+            throw new IllegalStateException(ex);
+        }
+        return l;
+    }
+    
+    static void putLongRelease(ByteBuffer b, int index, long l) {
+        // earlier stores (the message data) must not move after the store of the value
+        try {
+            STORE_FENCE.invokeExact();
+        } catch (Throwable ex) {
+            throw new IllegalStateException(ex);
+        }
+        b.putLong(index, l);
+    }
+    
+}
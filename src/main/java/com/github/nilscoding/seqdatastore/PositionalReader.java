@@ -0,0 +1,23 @@
+package com.github.nilscoding.seqdatastore;
+
+import java.io.IOException;
+
+/**
+ * Random access to stored data by position, used to resolve references of deduplicated data,
+ * see PositionalReaders for readers of file channels and byte arrays
+ * @author NilsCoding
+ */
+public interface PositionalReader {
+    
+    /**
+     * Reads data at the given position without changing any stream or channel position
+     * @param position  position of the first byte
+     * @param data      destination
+     * @param off       offset in destination
+     * @param len       number of bytes
+     * @return  number of bytes read, less than len only if the data ends
+     * @throws IOException  if reading fails
+     */
+    int read(long position, byte[] data, int off, int len) throws IOException;
+    
+}
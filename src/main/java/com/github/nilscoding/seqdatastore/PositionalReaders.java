@@ -0,0 +1,54 @@
+package com.github.nilscoding.seqdatastore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Common positional readers
+ * @author NilsCoding
+ */
+public final class PositionalReaders {
+    
+    private PositionalReaders() { }
+    
+    /**
+     * Creates a reader using positional reads of a file channel
+     * @param channel   file channel
+     * @return  positional reader
+     */
+    public static PositionalReader of(final FileChannel channel) {
+        return new PositionalReader() {
+            @Override
+            public int read(long position, byte[] data, int off, int len) throws IOException {
+                ByteBuffer buf = ByteBuffer.wrap(data, off, len);
+                while (buf.hasRemaining()) {
+                    if (channel.read(buf, position + buf.position() - off) < 0) {
+                        break;
+                    }
+                }
+                return buf.position() - off;
+            }
+        };
+    }
+    
+    /**
+     * Creates a reader of a byte array, e.g. the data of a ByteArrayInputStream
+     * @param bytes byte array, position 0 is the first byte
+     * @return  positional reader
+     */
+    public static PositionalReader of(final byte[] bytes) {
+        return new PositionalReader() {
+            @Override
+            public int read(long position, byte[] data, int off, int len) {
+                if ((position < 0) || (position >= bytes.length)) {
+                    return 0;
+                }
+                int count = (int)Math.min(len, bytes.length - position);
+                System.arraycopy(bytes, (int)position, data, off, count);
+                return count;
+            }
+        };
+    }
+    
+}
@@ -0,0 +1,77 @@
+package com.github.nilscoding.seqdatastore;
+
+import java.io.InputStream;
+
+/**
+ * Record input, reading a fixed number of fields per record from a binary input
+ * @author NilsCoding
+ */
+public class RecordInput {
+    
+    protected final BinaryInput input;
+    protected final int fieldsPerRecord;
+    protected boolean incomplete = false;
+    
+    /**
+     * Creates a new record input
+     * @param inStream          input stream
+     * @param fieldsPerRecord   number of fields per record
+     */
+    public RecordInput(InputStream inStream, int fieldsPerRecord) {
+        this(new BinaryInput(inStream), fieldsPerRecord);
+    }
+    
+    /**
+     * Creates a new record input
+     * @param input             binary input
+     * @param fieldsPerRecord   number of fields per record
+     */
+    public RecordInput(BinaryInput input, int fieldsPerRecord) {
+        this.input = input;
+        this.fieldsPerRecord = fieldsPerRecord;
+    }
+    
+    /**
+     * Reads the next record, consuming the input stream
+     * @return  fields of the record or null if the input ended or the record is incomplete
+     */
+    public BinaryInputData[] readRecord() {
+        this.incomplete = false;
+        BinaryInputData[] record = new BinaryInputData[this.fieldsPerRecord];
+        for (int i = 0; i < this.fieldsPerRecord; i++) {
+            BinaryInputData data = this.input.read();
+            if (data == null) {
+                this.incomplete = (i > 0);
+                return null;
+            }
+            record[i] = data;
+        }
+        return record;
+    }
+    
+    /**
+     * Returns if the last call of readRecord() ended within a record, i.e. the input ended after
+     * some but not all fields of the record
+     * @return  true if the last record was incomplete, false otherwise
+     */
+    public boolean isIncomplete() {
+        return incomplete;
+    }
+    
+    /**
+     * Returns the number of fields per record
+     * @return  number of fields per record
+     */
+    public int getFieldsPerRecord() {
+        return fieldsPerRecord;
+    }
+    
+    /**
+     * Returns the underlaying binary input
+     * @return  binary input
+     */
+    public BinaryInput getInput() {
+        return input;
+    }
+    
+}
@@ -0,0 +1,109 @@
+package com.github.nilscoding.seqdatastore;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Reader of a shared ring, the single consumer<br>
+ * poll() returns a binary input over the next message, which is decoded straight from the ring.
+ * The message is released for the writer by release() or the next poll().
+ * @author NilsCoding
+ */
+public class RingReader {
+    
+    protected final SharedRing ring;
+    protected final ByteBuffer view;
+    protected final byte[] lengthBytes = new byte[4];
+    protected final MessageStream stream = new MessageStream();
+    protected final BinaryInput input;
+    protected long tail;
+    protected long cachedHead;
+    protected long messageEnd = -1L;
+    
+    /**
+     * Creates a new ring reader, continuing after the last released message
+     * @param ring  shared ring
+     */
+    public RingReader(SharedRing ring) {
+        this.ring = ring;
+        this.view = ring.dataView();
+        this.tail = ring.getTail();
+        this.cachedHead = ring.getHead();
+        this.input = new BinaryInput(this.stream, 0L, 4096);
+    }
+    
+    /**
+     * Returns the next message, releasing the previous one
+     * @return  binary input over the fields of the message, positions are ring sequences,
+     *          or null if no message is available
+     */
+    public BinaryInput poll() {
+        this.release();
+        if (this.tail == this.cachedHead) {
+            this.cachedHead = this.ring.getHead();
+            if (this.tail == this.cachedHead) {
+                return null;
+            }
+        }
+        this.ring.get(this.view, this.tail, this.lengthBytes, 0, 4);
+        int length = ByteConversion.getInt(this.lengthBytes, 0);
+        this.stream.pos = this.tail + 4;
+        this.stream.end = this.tail + 4 + length;
+        this.messageEnd = this.stream.end;
+        this.input.reset(this.stream.pos);
+        return this.input;
+    }
+    
+    /**
+     * Releases the current message, its space can be reused by the writer
+     */
+    public void release() {
+        if (this.messageEnd >= 0) {
+            this.tail = this.messageEnd;
+            this.messageEnd = -1L;
+            this.ring.setTail(this.tail);
+        }
+    }
+    
+    /**
+     * Input stream over the current message
+     */
+    protected class MessageStream extends InputStream {
+        
+        protected long pos;
+        protected long end;
+        
+        @Override
+        public int read() {
+            if (this.pos >= this.end) {
+                return -1;
+            }
+            byte[] b = new byte[1];
+            ring.get(view, this.pos++, b, 0, 1);
+            return b[0] & 0xFF;
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (this.pos >= this.end) {
+                return -1;
+            }
+            int count = (int)Math.min(len, this.end - this.pos);
+            ring.get(view, this.pos, b, off, count);
+            this.pos += count;
+            return count;
+        }
+        
+        @Override
+        public long skip(long n) {
+            long count = Math.max(0L, Math.min(n, this.end - this.pos));
+            this.pos += count;
+            return count;
+        }
+        
+    }
+    
+}
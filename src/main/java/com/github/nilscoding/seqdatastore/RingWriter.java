@@ -0,0 +1,171 @@
+package com.github.nilscoding.seqdatastore;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writer of a shared ring, the single producer<br>
+ * Write the fields of a message with getOutput() and make them visible to the reader with publish().
+ * When the ring is full, writing waits until the reader has released enough data, at most for the write timeout.
+ * If the reader does not release enough data in time, the message is discarded and publish() returns false.
+ * Each message is encoded on its own: delta encoding restarts with every message and
+ * deduplication is not used, because references could not be resolved from the ring.
+ * @author NilsCoding
+ */
+public class RingWriter {
+    
+    /**
+     * default time to wait for free space in milliseconds
+     */
+    public static final long DEFAULT_WRITE_TIMEOUT = 10000L;
+    /**
+     * number of Thread.yield() calls before waiting for free space with short sleeps
+     */
+    protected static final int SPIN_COUNT = 100;
+    /**
+     * time of one short sleep while waiting for free space in nanoseconds
+     */
+    protected static final long PARK_NANOS = 50000L;
+    
+    protected final SharedRing ring;
+    protected final ByteBuffer view;
+    protected final BinaryOutput output;
+    protected final byte[] lengthBytes = new byte[4];
+    protected long head;
+    protected long cachedTail;
+    protected int pending = 0;
+    protected boolean overflow = false;
+    protected long writeTimeout = DEFAULT_WRITE_TIMEOUT;
+    
+    /**
+     * Creates a new ring writer, continuing after the last published message
+     * @param ring  shared ring
+     */
+    public RingWriter(SharedRing ring) {
+        this.ring = ring;
+        this.view = ring.dataView();
+        this.head = ring.getHead();
+        this.cachedTail = ring.getTail();
+        this.output = new BinaryOutput(new OutputStream() {
+            @Override
+            public void write(int b) {
+                write(new byte[]{ (byte)b }, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                append(b, off, len);
+            }
+        }, false) {
+            @Override
+            protected boolean writeReference(byte marker, byte[] data) {
+                return false;
+            }
+        };
+    }
+    
+    /**
+     * Returns the binary output for writing the fields of the current message
+     * @return  binary output
+     */
+    public BinaryOutput getOutput() {
+        return output;
+    }
+    
+    /**
+     * Sets the maximum time to wait for free space in the ring
+     * @param writeTimeout  timeout in milliseconds, 0 to wait without limit
+     */
+    public void setWriteTimeout(long writeTimeout) {
+        this.writeTimeout = Math.max(0L, writeTimeout);
+    }
+    
+    /**
+     * Returns the maximum time to wait for free space in the ring
+     * @return  timeout in milliseconds, 0 to wait without limit
+     */
+    public long getWriteTimeout() {
+        return writeTimeout;
+    }
+    
+    /**
+     * Publishes the current message
+     * @return  true if published, false if the message was empty, larger than the ring or the reader did not
+     *          release enough data within the write timeout, the message is discarded then
+     */
+    public boolean publish() {
+        if ((this.overflow) || (this.pending == 0)) {
+            this.discard();
+            return false;
+        }
+        ByteConversion.putInt(this.lengthBytes, 0, this.pending);
+        this.ring.put(this.view, this.head, this.lengthBytes, 0, 4);
+        this.head += 4 + this.pending;
+        this.pending = 0;
+        this.output.resetDelta();
+        this.ring.setHead(this.head);
+        return true;
+    }
+    
+    /**
+     * Discards the current message
+     */
+    public void discard() {
+        this.pending = 0;
+        this.overflow = false;
+        this.output.resetDelta();
+    }
+    
+    /**
+     * Internally appends data to the current message, waiting for free space
+     * @param b     data
+     * @param off   offset in data
+     * @param len   number of bytes
+     */
+    protected void append(byte[] b, int off, int len) {
+        if (this.overflow) {
+            return;
+        }
+        long need = 4L + this.pending + len;
+        if (need > this.ring.getCapacity()) {
+            this.overflow = true;
+            return;
+        }
+        if (this.head + need - this.cachedTail > this.ring.getCapacity()) {
+            this.cachedTail = this.ring.getTail();
+            if ((this.head + need - this.cachedTail > this.ring.getCapacity()) && (!this.awaitSpace(need))) {
+                this.overflow = true;
+                return;
+            }
+        }
+        this.ring.put(this.view, this.head + 4 + this.pending, b, off, len);
+        this.pending += len;
+    }
+    
+    /**
+     * Internally waits until the reader has released enough data, spinning first and sleeping shortly after that
+     * @param need  number of bytes needed for the current message
+     * @return  true if there is enough space, false if the write timeout elapsed
+     */
+    protected boolean awaitSpace(long need) {
+        long start = System.nanoTime();
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(this.writeTimeout);
+        int spins = 0;
+        while (this.head + need - this.cachedTail > this.ring.getCapacity()) {
+            if ((timeoutNanos > 0L) && (System.nanoTime() - start >= timeoutNanos)) {
+                return false;
+            }
+            if (spins < SPIN_COUNT) {
+                spins++;
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(PARK_NANOS);
+            }
+            this.cachedTail = this.ring.getTail();
+        }
+        return true;
+    }
+    
+}
@@ -0,0 +1,179 @@
+package com.github.nilscoding.seqdatastore;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+
+/**
+ * Single-producer/single-consumer ring buffer in a memory-mapped file, for passing data between processes<br>
+ * Use one RingWriter in the producing process and one RingReader in the consuming process.
+ * Messages contain fields in the BinaryOutput format, prefixed by a 4-byte length.
+ * The header holds the capacity, the write sequence (head) and the read sequence (tail)
+ * on separate cache lines. Opening a ring locks the file while the header is checked and initialized,
+ * so only the first process initializes a new ring.
+ * @author NilsCoding
+ */
+public class SharedRing implements Closeable {
+
+    protected static final int CAPACITY_OFFSET = 0;
+    protected static final int HEAD_OFFSET = 64;
+    protected static final int TAIL_OFFSET = 128;
+    protected static final int HEADER_SIZE = 256;
+    /**
+     * maximum capacity in bytes
+     */
+    public static final int MAX_CAPACITY = 1 << 30;
+
+    protected final RandomAccessFile file;
+    protected final MappedByteBuffer buffer;
+    protected final int capacity;
+    protected final int mask;
+
+    /**
+     * Opens a ring file, creating it if it does not exist
+     * @param ringFile  ring file, e.g. on a tmpfs like /dev/shm
+     * @param capacity  capacity in bytes for a new file, rounded up to a power of two of at least 64,
+     *                  ignored if the file already contains a ring
+     * @throws IOException  if the file cannot be opened or mapped
+     * @throws IllegalArgumentException if the capacity is not between 1 and MAX_CAPACITY
+     */
+    public SharedRing(File ringFile, int capacity) throws IOException {
+        if ((capacity <= 0) || (capacity > MAX_CAPACITY)) {
+            throw new IllegalArgumentException("capacity must be between 1 and " + MAX_CAPACITY);
+        }
+        this.file = new RandomAccessFile(ringFile, "rw");
+        // the file lock excludes other processes, the class lock other threads, which would get an OverlappingFileLockException
+        synchronized (SharedRing.class) {
+            try (FileLock lock = this.file.getChannel().lock()) {
+                int cap = Math.max(64, capacity);
+                if (Integer.bitCount(cap) != 1) {
+                    cap = Integer.highestOneBit(cap) << 1;
+                }
+                boolean initialized = false;
+                if (this.file.length() >= HEADER_SIZE) {
+                    this.file.seek(CAPACITY_OFFSET);
+                    long existing = this.file.readLong();
+                    if ((existing > 0) && (Long.bitCount(existing) == 1) && (existing <= MAX_CAPACITY)
+                            && (this.file.length() >= HEADER_SIZE + existing)) {
+                        cap = (int)existing;
+                        initialized = true;
+                    }
+                }
+                this.capacity = cap;
+                this.mask = cap - 1;
+                this.buffer = this.file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + cap);
+                if (!initialized) {
+                    this.buffer.putLong(HEAD_OFFSET, 0L);
+                    this.buffer.putLong(TAIL_OFFSET, 0L);
+                    OrderedAccess.putLongRelease(this.buffer, CAPACITY_OFFSET, cap);
+                }
+            } catch (IOException ex) {
+                this.file.close();
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * Returns the capacity
+     * @return  capacity in bytes
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Closes the file, the mapping stays valid until it is garbage collected
+     * @throws IOException  if closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        this.file.close();
+    }
+
+    /**
+     * Internally returns the write sequence
+     * @return  write sequence
+     */
+    protected long getHead() {
+        return OrderedAccess.getLongAcquire(this.buffer, HEAD_OFFSET);
+    }
+
+    /**
+     * Internally publishes the write sequence
+     * @param head  write sequence
+     */
+    protected void setHead(long head) {
+        OrderedAccess.putLongRelease(this.buffer, HEAD_OFFSET, head);
+    }
+
+    /**
+     * Internally returns the read sequence
+     * @return  read sequence
+     */
+    protected long getTail() {
+        return OrderedAccess.getLongAcquire(this.buffer, TAIL_OFFSET);
+    }
+
+    /**
+     * Internally publishes the read sequence
+     * @param tail  read sequence
+     */
+    protected void setTail(long tail) {
+        OrderedAccess.putLongRelease(this.buffer, TAIL_OFFSET, tail);
+    }
+
+    /**
+     * Internally creates a view of the data region, each side uses its own view
+     * @return  view of the data region
+     */
+    protected ByteBuffer dataView() {
+        ByteBuffer view = this.buffer.duplicate();
+        view.position(HEADER_SIZE);
+        return view.slice();
+    }
+
+    /**
+     * Internally copies data into the ring, wrapping at the end
+     * @param view  data view
+     * @param seq   sequence of the first byte
+     * @param b     data
+     * @param off   offset in data
+     * @param len   number of bytes
+     */
+    protected void put(ByteBuffer view, long seq, byte[] b, int off, int len) {
+        int index = (int)(seq & this.mask);
+        int first = Math.min(len, this.capacity - index);
+        view.position(index);
+        view.put(b, off, first);
+        if (first < len) {
+            view.position(0);
+            view.put(b, off + first, len - first);
+        }
+    }
+
+    /**
+     * Internally copies data out of the ring, wrapping at the end
+     * @param view  data view
+     * @param seq   sequence of the first byte
+     * @param b     destination
+     * @param off   offset in destination
+     * @param len   number of bytes
+     */
+    protected void get(ByteBuffer view, long seq, byte[] b, int off, int len) {
+        int index = (int)(seq & this.mask);
+        int first = Math.min(len, this.capacity - index);
+        view.position(index);
+        view.get(b, off, first);
+        if (first < len) {
+            view.position(0);
+            view.get(b, off + first, len - first);
+        }
+    }
+
+}
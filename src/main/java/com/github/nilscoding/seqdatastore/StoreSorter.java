@@ -0,0 +1,504 @@
+package com.github.nilscoding.seqdatastore;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * External sort and k-way merge of store files by a key field<br>
+ * The store files contain records with a fixed number of fields. Sorting reads the records
+ * into memory up to an estimated heap size, spills each sorted run to a temporary store file and
+ * merges the runs with a heap, in several passes if there are more runs than the merge fan-in.
+ * Records with equal keys keep their input order. An incomplete record at the end of an input or invalid
+ * data lets sorting and merging fail.
+ * @author NilsCoding
+ */
+public class StoreSorter {
+
+    /**
+     * default in-memory run size in (estimated) heap bytes
+     */
+    public static final long DEFAULT_RUN_BYTES = 64L * 1024L * 1024L;
+    /**
+     * default buffer size for reading and writing files
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+    /**
+     * default maximum number of files merged at once
+     */
+    public static final int DEFAULT_MERGE_FAN_IN = 32;
+
+    protected final int fieldsPerRecord;
+    protected final int keyField;
+    protected long runBytes = DEFAULT_RUN_BYTES;
+    protected int bufferSize = DEFAULT_BUFFER_SIZE;
+    protected int mergeFanIn = DEFAULT_MERGE_FAN_IN;
+    protected File tempDirectory = null;
+
+    /**
+     * estimated heap size of a BinaryInputData object without its value
+     */
+    protected static final long DATA_OBJECT_SIZE = 40L;
+    /**
+     * estimated heap size of an object or array header
+     */
+    protected static final long HEADER_SIZE = 16L;
+
+    /**
+     * Creates a new store sorter
+     * @param fieldsPerRecord   number of fields per record
+     * @param keyField          index of the key field in the record
+     */
+    public StoreSorter(int fieldsPerRecord, int keyField) {
+        this.fieldsPerRecord = fieldsPerRecord;
+        this.keyField = keyField;
+    }
+
+    /**
+     * Sets the maximum size of the records held in memory for one sorted run,
+     * estimated from the decoded fields and their values on the heap
+     * @param runBytes  run size in bytes
+     */
+    public void setRunBytes(long runBytes) {
+        this.runBytes = runBytes;
+    }
+
+    /**
+     * Returns the maximum (estimated) heap size of the records held in memory for one sorted run
+     * @return  run size in bytes
+     */
+    public long getRunBytes() {
+        return runBytes;
+    }
+
+    /**
+     * Sets the buffer size for reading and writing files
+     * @param bufferSize    buffer size in bytes
+     */
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Returns the buffer size for reading and writing files
+     * @return  buffer size in bytes
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Sets the maximum number of files merged at once, each open file uses one read buffer
+     * @param mergeFanIn    number of files, at least 2
+     */
+    public void setMergeFanIn(int mergeFanIn) {
+        this.mergeFanIn = Math.max(2, mergeFanIn);
+    }
+
+    /**
+     * Returns the maximum number of files merged at once
+     * @return  number of files
+     */
+    public int getMergeFanIn() {
+        return mergeFanIn;
+    }
+
+    /**
+     * Sets the directory for temporary run files
+     * @param tempDirectory directory or null for the system default
+     */
+    public void setTempDirectory(File tempDirectory) {
+        this.tempDirectory = tempDirectory;
+    }
+
+    /**
+     * Returns the directory for temporary run files
+     * @return  directory or null for the system default
+     */
+    public File getTempDirectory() {
+        return tempDirectory;
+    }
+
+    /**
+     * Sorts the records of all input files by the key field into the output file
+     * @param inputs    input store files
+     * @param output    output store file
+     * @return  true if sorted successfully, false otherwise
+     */
+    public boolean sort(List<File> inputs, File output) {
+        List<File> runs = new ArrayList<>();
+        try {
+            List<BinaryInputData[]> records = new ArrayList<>();
+            long recordBytes = 0L;
+            for (File file : inputs) {
+                try (InputStream in = this.openInput(file)) {
+                    RecordInput recordInput = this.openRecordInput(in);
+                    BinaryInputData[] record;
+                    while ((record = readRecord(recordInput)) != null) {
+                        records.add(record);
+                        recordBytes += this.recordSize(record);
+                        if (recordBytes >= this.runBytes) {
+                            runs.add(this.writeRun(records));
+                            records.clear();
+                            recordBytes = 0L;
+                        }
+                    }
+                }
+            }
+            if (runs.isEmpty()) {
+                // everything fits into memory, no need for temporary files
+                Collections.sort(records, this.recordComparator());
+                try (OutputStream out = this.openOutput(output)) {
+                    BinaryOutput binOut = new BinaryOutput(out, false);
+                    for (BinaryInputData[] r : records) {
+                        this.writeRecord(binOut, r);
+                    }
+                }
+                return true;
+            }
+            if (!records.isEmpty()) {
+                runs.add(this.writeRun(records));
+                records.clear();
+            }
+            return this.merge(runs, output);
+        } catch (Exception ex) {
+            return false;
+        } finally {
+            for (File run : runs) {
+                run.delete();
+            }
+        }
+    }
+
+    /**
+     * Merges input files which are already sorted by the key field into the output file,
+     * merging groups of at most the merge fan-in into temporary files first if there are more inputs
+     * @param inputs    sorted input store files
+     * @param output    output store file
+     * @return  true if merged successfully, false otherwise
+     */
+    public boolean merge(List<File> inputs, File output) {
+        List<File> temporary = new ArrayList<>();
+        try {
+            List<File> files = inputs;
+            while (files.size() > this.mergeFanIn) {
+                List<File> merged = new ArrayList<>();
+                for (int i = 0; i < files.size(); i += this.mergeFanIn) {
+                    List<File> group = files.subList(i, Math.min(files.size(), i + this.mergeFanIn));
+                    if (group.size() == 1) {
+                        merged.add(group.get(0));
+                        continue;
+                    }
+                    File run = this.createRunFile();
+                    temporary.add(run);
+                    if (!this.mergeFiles(group, run, true)) {
+                        return false;
+                    }
+                    merged.add(run);
+                }
+                files = merged;
+            }
+            return this.mergeFiles(files, output, false);
+        } catch (Exception ex) {
+            return false;
+        } finally {
+            for (File run : temporary) {
+                run.delete();
+            }
+        }
+    }
+
+    /**
+     * Internally merges sorted files with one heap
+     * @param inputs    sorted input store files
+     * @param output    output store file
+     * @param run       true if the output is a temporary run file, written with delta encoding
+     * @return  true if merged successfully, false otherwise
+     */
+    protected boolean mergeFiles(List<File> inputs, File output, boolean run) {
+        List<InputStream> streams = new ArrayList<>();
+        try {
+            PriorityQueue<RunCursor> heap = new PriorityQueue<>(Math.max(1, inputs.size()), this.cursorComparator());
+            for (int i = 0; i < inputs.size(); i++) {
+                InputStream in = this.openInput(inputs.get(i));
+                streams.add(in);
+                RunCursor cursor = new RunCursor(i, this.openRecordInput(in));
+                if (cursor.next()) {
+                    heap.add(cursor);
+                }
+            }
+            try (OutputStream out = this.openOutput(output)) {
+                BinaryOutput binOut = new BinaryOutput(out, false);
+                binOut.setDeltaEncoding(run);
+                while (!heap.isEmpty()) {
+                    RunCursor cursor = heap.poll();
+                    this.writeRecord(binOut, cursor.record);
+                    if (cursor.next()) {
+                        heap.add(cursor);
+                    }
+                }
+            }
+            return true;
+        } catch (Exception ex) {
+            return false;
+        } finally {
+            for (InputStream in : streams) {
+                try {
+                    in.close();
+                } catch (Exception ex) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Sorts the records and writes them to a new temporary run file
+     * @param records   records
+     * @return  run file
+     * @throws Exception    if writing fails
+     */
+    protected File writeRun(List<BinaryInputData[]> records) throws Exception {
+        Collections.sort(records, this.recordComparator());
+        File run = this.createRunFile();
+        try (OutputStream out = this.openOutput(run)) {
+            BinaryOutput binOut = new BinaryOutput(out, false);
+            binOut.setDeltaEncoding(true);
+            for (BinaryInputData[] r : records) {
+                this.writeRecord(binOut, r);
+            }
+        }
+        return run;
+    }
+
+    /**
+     * Creates a new temporary run file
+     * @return  run file
+     * @throws Exception    if creating fails
+     */
+    protected File createRunFile() throws Exception {
+        File run = File.createTempFile("seq-data-store-run", ".tmp", this.tempDirectory);
+        run.deleteOnExit();
+        return run;
+    }
+
+    /**
+     * Returns the estimated heap size of a decoded record
+     * @param record    record
+     * @return  size in bytes
+     */
+    protected long recordSize(BinaryInputData[] record) {
+        long size = align(HEADER_SIZE + 4L * record.length);
+        for (BinaryInputData data : record) {
+            size += DATA_OBJECT_SIZE + this.valueSize(data.getValue());
+        }
+        return size;
+    }
+
+    /**
+     * Returns the estimated heap size of a decoded value
+     * @param value value (can be null)
+     * @return  size in bytes
+     */
+    protected long valueSize(Object value) {
+        if (value == null) {
+            return 0L;
+        }
+        if (value instanceof Integer) {
+            return HEADER_SIZE;
+        }
+        if (value instanceof byte[]) {
+            return align(HEADER_SIZE + ((byte[])value).length);
+        }
+        if (value instanceof char[]) {
+            return align(HEADER_SIZE + 2L * ((char[])value).length);
+        }
+        if (value instanceof String) {
+            return 24L + align(HEADER_SIZE + 2L * ((String)value).length());
+        }
+        // Long, Double, Date
+        return 24L;
+    }
+
+    /**
+     * Internally aligns a size to 8 bytes
+     * @param size  size
+     * @return  aligned size
+     */
+    protected static long align(long size) {
+        return (size + 7L) & ~7L;
+    }
+
+    /**
+     * Reads the next record
+     * @param input record input
+     * @return  record or null if the input ended
+     * @throws IOException  if the input ended within a record or contains invalid data
+     */
+    protected static BinaryInputData[] readRecord(RecordInput input) throws IOException {
+        BinaryInputData[] record = input.readRecord();
+        if (record == null) {
+            if (input.isIncomplete()) {
+                throw new IOException("incomplete record at the end of the input");
+            }
+            return null;
+        }
+        for (BinaryInputData data : record) {
+            if (!data.isValid()) {
+                throw new IOException("invalid data at position " + data.getPosition());
+            }
+        }
+        return record;
+    }
+
+    /**
+     * Writes all fields of a record
+     * @param out       binary output
+     * @param record    record
+     * @throws Exception    if a field cannot be written
+     */
+    protected void writeRecord(BinaryOutput out, BinaryInputData[] record) throws Exception {
+        for (BinaryInputData data : record) {
+            if (!out.write(data)) {
+                throw new IllegalArgumentException("unsupported field at position " + data.getPosition());
+            }
+        }
+    }
+
+    /**
+     * Opens an input stream, not buffered because BinaryInput reads ahead itself
+     * and resolves references of deduplicated data with the channel of a FileInputStream
+     * @param file  file
+     * @return  input stream
+     * @throws Exception    if opening fails
+     */
+    protected InputStream openInput(File file) throws Exception {
+        return new FileInputStream(file);
+    }
+
+    /**
+     * Creates a record input with a read-ahead buffer of the buffer size
+     * @param in    input stream
+     * @return  record input
+     */
+    protected RecordInput openRecordInput(InputStream in) {
+        return new RecordInput(new BinaryInput(in, 0L, this.bufferSize), this.fieldsPerRecord);
+    }
+
+    /**
+     * Opens a buffered output stream
+     * @param file  file
+     * @return  output stream
+     * @throws Exception    if opening fails
+     */
+    protected OutputStream openOutput(File file) throws Exception {
+        return new BufferedOutputStream(new FileOutputStream(file), this.bufferSize);
+    }
+
+    /**
+     * Returns the comparator for records
+     * @return  record comparator
+     */
+    protected Comparator<BinaryInputData[]> recordComparator() {
+        return new Comparator<BinaryInputData[]>() {
+            @Override
+            public int compare(BinaryInputData[] r1, BinaryInputData[] r2) {
+                return compareData(r1[keyField], r2[keyField]);
+            }
+        };
+    }
+
+    /**
+     * Returns the comparator for run cursors, equal keys are ordered by run index
+     * @return  run cursor comparator
+     */
+    protected Comparator<RunCursor> cursorComparator() {
+        return new Comparator<RunCursor>() {
+            @Override
+            public int compare(RunCursor c1, RunCursor c2) {
+                int result = compareData(c1.record[keyField], c2.record[keyField]);
+                if (result == 0) {
+                    result = Integer.compare(c1.index, c2.index);
+                }
+                return result;
+            }
+        };
+    }
+
+    /**
+     * Compares two binary input data values, null values first, different types by type
+     * @param d1    first data
+     * @param d2    second data
+     * @return  comparison result
+     */
+    @SuppressWarnings("unchecked")
+    public static int compareData(BinaryInputData d1, BinaryInputData d2) {
+        Object v1 = d1.getValue();
+        Object v2 = d2.getValue();
+        if ((v1 == null) || (v2 == null)) {
+            return (v1 == null) ? ((v2 == null) ? 0 : -1) : 1;
+        }
+        if (d1.getType() != d2.getType()) {
+            return Byte.compare(d1.getType(), d2.getType());
+        }
+        if ((v1 instanceof Comparable) && (v1.getClass() == v2.getClass())) {
+            return ((Comparable<Object>)v1).compareTo(v2);
+        }
+        if ((v1 instanceof byte[]) && (v2 instanceof byte[])) {
+            byte[] b1 = (byte[])v1;
+            byte[] b2 = (byte[])v2;
+            int len = Math.min(b1.length, b2.length);
+            for (int i = 0; i < len; i++) {
+                int result = Integer.compare(b1[i] & 0xFF, b2[i] & 0xFF);
+                if (result != 0) {
+                    return result;
+                }
+            }
+            return Integer.compare(b1.length, b2.length);
+        }
+        if ((v1 instanceof char[]) && (v2 instanceof char[])) {
+            return new String((char[])v1).compareTo(new String((char[])v2));
+        }
+        return 0;
+    }
+
+    /**
+     * Cursor on the current record of one sorted input
+     */
+    protected static class RunCursor {
+
+        protected final int index;
+        protected final RecordInput input;
+        protected BinaryInputData[] record;
+
+        /**
+         * Creates a new run cursor
+         * @param index input index
+         * @param input record input
+         */
+        protected RunCursor(int index, RecordInput input) {
+            this.index = index;
+            this.input = input;
+        }
+
+        /**
+         * Reads the next record
+         * @return  true if a record was read, false if the input ended
+         * @throws IOException  if the input ended within a record or contains invalid data
+         */
+        protected boolean next() throws IOException {
+            this.record = readRecord(this.input);
+            return this.record != null;
+        }
+
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.github.nilscoding.seqdatastore;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Big-endian access to byte arrays at an offset, Java 9+ implementation using VarHandles<br>
+ * Must provide the same methods as the Java 8 version in src/main/java.
+ * @author NilsCoding
+ */
+final class ByteArrayAccess {
+    
+    private static final VarHandle SHORT = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    
+    private ByteArrayAccess() { }
+    
+    static short getShort(byte[] b, int off) {
+        return (short)SHORT.get(b, off);
+    }
+    
+    static void putShort(byte[] b, int off, short s) {
+        SHORT.set(b, off, s);
+    }
+    
+    static int getInt(byte[] b, int off) {
+        return (int)INT.get(b, off);
+    }
+    
+    static void putInt(byte[] b, int off, int i) {
+        INT.set(b, off, i);
+    }
+    
+    static long getLong(byte[] b, int off) {
+        return (long)LONG.get(b, off);
+    }
+    
+    static void putLong(byte[] b, int off, long l) {
+        LONG.set(b, off, l);
+    }
+    
+}
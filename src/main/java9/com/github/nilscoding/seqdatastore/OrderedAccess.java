@@ -0,0 +1,27 @@
+package com.github.nilscoding.seqdatastore;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Ordered long access to (mapped) byte buffers, Java 9+ implementation using VarHandles<br>
+ * Must provide the same methods as the Java 8 version in src/main/java.
+ * @author NilsCoding
+ */
+final class OrderedAccess {
+    
+    private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    
+    private OrderedAccess() { }
+    
+    static long getLongAcquire(ByteBuffer b, int index) {
+        return (long)LONG.getAcquire(b, index);
+    }
+    
+    static void putLongRelease(ByteBuffer b, int index, long l) {
+        LONG.setRelease(b, index, l);
+    }
+    
+}
@@ -0,0 +1,165 @@
+package com.github.nilscoding.seqdatastore;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Date;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static com.github.nilscoding.seqdatastore.TestSupport.sequence;
+
+/**
+ * Tests of Aggregator and of BinaryInput.next(): aggregation per type and per field, in parallel and on truncated data
+ * @author NilsCoding
+ */
+public class AggregatorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Writes 1000 records of INT, delta encoded LONG, DOUBLE, delta encoded DATE, BYTES and STRING
+     * @param out   binary output
+     */
+    private static void writeRecords(BinaryOutput out) {
+        out.setDeltaEncoding(true);
+        for (int i = 0; i < 1000; i++) {
+            out.writeInt(i - 500).writeLong(i * 1000L).writeDouble(i * 0.5)
+                    .writeDate(new Date(1500000000000L + i)).writeBytes(sequence(i % 10)).writeString("s" + i);
+        }
+    }
+
+    @Test
+    public void aggregatePerType() {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        writeRecords(new BinaryOutput(bos));
+        Aggregator aggregator = new Aggregator().aggregate(new BinaryInput(new ByteArrayInputStream(bos.toByteArray())));
+        Aggregation ints = aggregator.getAggregation(MagicMarker.INT);
+        assertEquals(1000L, ints.getCount());
+        assertEquals(-500L, ints.getLongMin());
+        assertEquals(499L, ints.getLongMax());
+        assertEquals(-500L, ints.getLongSum());
+        Aggregation longs = aggregator.getAggregation(MagicMarker.LONG);
+        assertEquals(999000L, longs.getLongMax());
+        assertEquals(499500000L, longs.getLongSum());
+        assertEquals(249750.0, aggregator.getAggregation(MagicMarker.DOUBLE).getSum(), 0.0);
+        assertEquals(1500000000999L, aggregator.getAggregation(MagicMarker.DATE).getLongMax());
+        assertEquals(1000L, aggregator.getTypeCount(MagicMarker.BYTES));
+        assertEquals(1000L, aggregator.getTypeCount(MagicMarker.STRING));
+        assertEquals(0L, aggregator.getTypeCount(MagicMarker.LONG_DELTA));
+        assertNull(aggregator.getAggregation(MagicMarker.STRING));
+    }
+
+    @Test
+    public void aggregatePerFieldWithHistogram() {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        writeRecords(new BinaryOutput(bos));
+        Aggregator aggregator = new Aggregator(6, new double[]{ 0.0, 100.0 });
+        aggregator.aggregate(new BinaryInput(new ByteArrayInputStream(bos.toByteArray())));
+        assertNull(aggregator.getAggregation(MagicMarker.INT));
+        assertArrayEquals(new long[]{ 500L, 100L, 400L }, aggregator.getFieldAggregation(0).getHistogram());
+        assertArrayEquals(new long[]{ 0L, 200L, 800L }, aggregator.getFieldAggregation(2).getHistogram());
+        assertEquals(0L, aggregator.getFieldAggregation(4).getCount());
+        assertNull(aggregator.getFieldAggregation(6));
+    }
+
+    @Test
+    public void aggregateInParallel() throws IOException {
+        File file = this.folder.newFile();
+        BlockStatistics statistics = new BlockStatistics();
+        try (OutputStream out = new FileOutputStream(file)) {
+            BinaryOutput binOut = new BinaryOutput(out);
+            binOut.setBlockStatistics(statistics);
+            binOut.setBlockSize(600);
+            writeRecords(binOut);
+            // the last block is not finished
+        }
+        assertTrue(statistics.getBlocks().size() > 10);
+        Aggregator parallel = Aggregator.aggregateParallel(file, statistics, 6, null, 4);
+        assertNotNull(parallel);
+        Aggregator sequential = new Aggregator(6, null);
+        try (FileInputStream in = new FileInputStream(file)) {
+            sequential.aggregate(new BinaryInput(in));
+        }
+        for (int i = 0; i < 6; i++) {
+            assertEquals(sequential.getFieldAggregation(i).getCount(), parallel.getFieldAggregation(i).getCount());
+            assertEquals(sequential.getFieldAggregation(i).getLongSum(), parallel.getFieldAggregation(i).getLongSum());
+        }
+        assertEquals(1000L, parallel.getFieldAggregation(1).getCount());
+    }
+
+    @Test
+    public void nextStopsAtTruncatedPayloads() {
+        byte[][] fields = new byte[][]{ encoded(0), encoded(1), encoded(2), encoded(3) };
+        for (byte[] field : fields) {
+            // marker only, marker and part of the length, marker and length but no payload
+            for (int len : new int[]{ 1, 3, 5 }) {
+                byte[] data = Arrays.copyOf(field, len);
+                BinaryInput input = new BinaryInput(new ByteArrayInputStream(data));
+                assertFalse("marker " + field[0] + ", " + len + " bytes", input.next());
+            }
+            BinaryInput input = new BinaryInput(new ByteArrayInputStream(field));
+            assertTrue(input.next());
+            assertEquals(field[0], input.getLastType());
+            assertFalse(input.next());
+        }
+        // a stored negative BYTES length is invalid
+        byte[] negative = new byte[]{ MagicMarker.BYTES, (byte)0xFF, (byte)0xFF, (byte)0xFF, (byte)0xFF };
+        assertFalse(new BinaryInput(new ByteArrayInputStream(negative)).next());
+    }
+
+    @Test
+    public void nextReportsReferencedTypes() {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        BinaryOutput out = new BinaryOutput(bos);
+        out.setDeduplicationSize(8);
+        for (int i = 0; i < 10; i++) {
+            out.writeBytes(sequence(20)).writeCustomInt(sequence(30));
+        }
+        byte[] data = bos.toByteArray();
+        BinaryInput input = new BinaryInput(new ByteArrayInputStream(data));
+        input.setReferenceReader(PositionalReaders.of(data));
+        Aggregator aggregator = new Aggregator().aggregate(input);
+        assertEquals(10L, aggregator.getTypeCount(MagicMarker.BYTES));
+        assertEquals(10L, aggregator.getTypeCount(MagicMarker.CUSTOM_INT));
+        assertEquals(0L, aggregator.getTypeCount(MagicMarker.UNKNOWN));
+        // without a reader the references are counted as UNKNOWN
+        aggregator = new Aggregator().aggregate(new BinaryInput(new ByteArrayInputStream(data)));
+        assertEquals(1L, aggregator.getTypeCount(MagicMarker.BYTES));
+        assertEquals(18L, aggregator.getTypeCount(MagicMarker.UNKNOWN));
+    }
+
+    /**
+     * Returns a field with 10 bytes of payload
+     * @param kind  0 to 3 for BYTES, CUSTOM_INT, CHARS or STRING
+     * @return  encoded field
+     */
+    private static byte[] encoded(int kind) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        BinaryOutput binOut = new BinaryOutput(bos);
+        if (kind == 0) {
+            binOut.writeBytes(sequence(10));
+        } else if (kind == 1) {
+            binOut.writeCustomInt(sequence(10));
+        } else if (kind == 2) {
+            binOut.writeChars("abcde".toCharArray());
+        } else {
+            binOut.writeString("abcde");
+        }
+        return bos.toByteArray();
+    }
+
+}
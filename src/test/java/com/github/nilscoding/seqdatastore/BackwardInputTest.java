@@ -0,0 +1,81 @@
+package com.github.nilscoding.seqdatastore;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static com.github.nilscoding.seqdatastore.TestSupport.assertField;
+import static com.github.nilscoding.seqdatastore.TestSupport.readAll;
+
+/**
+ * Tests of TRAILER markers and of reading entries backwards with BackwardInput
+ * @author NilsCoding
+ */
+public class BackwardInputTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void trailersAreSkippedAndReadBackwards() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        BinaryOutput out = new BinaryOutput(bos);
+        out.setDeltaEncoding(true);
+        for (int i = 0; i < 20; i++) {
+            out.writeLong(1000L + i).writeLong(2000L + i).writeString("entry " + i).writeTrailer();
+        }
+        byte[] data = bos.toByteArray();
+        List<BinaryInputData> fields = readAll(new BinaryInput(new TestSupport.TrickleInputStream(new ByteArrayInputStream(data)), 0L, 16));
+        assertEquals(60, fields.size());
+        for (int i = 0; i < 20; i++) {
+            assertField(fields.get(i * 3), MagicMarker.LONG, 1000L + i);
+            assertField(fields.get(i * 3 + 1), MagicMarker.LONG, 2000L + i);
+            assertField(fields.get(i * 3 + 2), MagicMarker.STRING, "entry " + i);
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(TestSupport.write(this.folder, data), "r")) {
+            BackwardInput backward = new BackwardInput(raf.getChannel());
+            for (int i = 19; i >= 0; i--) {
+                BinaryInputData[] entry = backward.readPrevious();
+                assertNotNull(entry);
+                assertEquals(3, entry.length);
+                assertField(entry[1], MagicMarker.LONG, 2000L + i);
+                assertEquals(fields.get(i * 3).getPosition(), entry[0].getPosition());
+            }
+            assertNull(backward.readPrevious());
+        }
+    }
+
+    @Test
+    public void readLastFieldsWithTrailingLength() throws IOException {
+        File file = this.folder.newFile();
+        try (OutputStream out = new FileOutputStream(file)) {
+            BinaryOutput binOut = new BinaryOutput(out);
+            binOut.setTrailingLength(true);
+            for (int i = 0; i < 100; i++) {
+                binOut.writeInt(i);
+            }
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            BackwardInput backward = new BackwardInput(raf.getChannel());
+            List<BinaryInputData[]> last = backward.readLast(3);
+            assertEquals(3, last.size());
+            for (int i = 0; i < 3; i++) {
+                assertEquals(1, last.get(i).length);
+                assertField(last.get(i)[0], MagicMarker.INT, 97 + i);
+            }
+            assertEquals(97, backward.readLast(1000).size());
+        }
+    }
+
+}
@@ -0,0 +1,140 @@
+package com.github.nilscoding.seqdatastore;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Date;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static com.github.nilscoding.seqdatastore.TestSupport.repeat;
+import static com.github.nilscoding.seqdatastore.TestSupport.sequence;
+
+/**
+ * Tests of BinaryEncoder: the sizeOf methods return the exact size and the encode methods write
+ * the same bytes as BinaryOutput, into byte[] at an offset and into ByteBuffers of either byte order
+ * @author NilsCoding
+ */
+public class BinaryEncoderTest {
+
+    @Test
+    public void numbers() {
+        for (int i : new int[]{ 0, -1, Integer.MIN_VALUE, Integer.MAX_VALUE, 0x01020304 }) {
+            assertEncoded(encoded(out -> out.writeInt(i)), BinaryEncoder.sizeOfInt(),
+                    (dst, off) -> BinaryEncoder.encodeInt(dst, off, i), dst -> BinaryEncoder.encodeInt(dst, i));
+        }
+        for (long l : new long[]{ 0L, -1L, Long.MIN_VALUE, Long.MAX_VALUE, 0x0102030405060708L }) {
+            assertEncoded(encoded(out -> out.writeLong(l)), BinaryEncoder.sizeOfLong(),
+                    (dst, off) -> BinaryEncoder.encodeLong(dst, off, l), dst -> BinaryEncoder.encodeLong(dst, l));
+        }
+        for (double d : new double[]{ 0.0, -1.5, Double.NaN, Double.MAX_VALUE, Double.NEGATIVE_INFINITY }) {
+            assertEncoded(encoded(out -> out.writeDouble(d)), BinaryEncoder.sizeOfDouble(),
+                    (dst, off) -> BinaryEncoder.encodeDouble(dst, off, d), dst -> BinaryEncoder.encodeDouble(dst, d));
+        }
+        for (Date d : new Date[]{ null, new Date(0L), new Date(1234567890123L) }) {
+            assertEncoded(encoded(out -> out.writeDate(d)), BinaryEncoder.sizeOf(d),
+                    (dst, off) -> BinaryEncoder.encodeDate(dst, off, d), dst -> BinaryEncoder.encodeDate(dst, d));
+        }
+    }
+
+    @Test
+    public void payloads() {
+        for (byte[] b : new byte[][]{ null, new byte[0], sequence(1), sequence(300) }) {
+            assertEncoded(encoded(out -> out.writeBytes(b)), BinaryEncoder.sizeOf(b),
+                    (dst, off) -> BinaryEncoder.encodeBytes(dst, off, b), dst -> BinaryEncoder.encodeBytes(dst, b));
+        }
+        for (String s : new String[]{ null, "", "a", repeat("äöü € 😀 ", 30) }) {
+            char[] ch = (s != null) ? s.toCharArray() : null;
+            assertEncoded(encoded(out -> out.writeString(s)), BinaryEncoder.sizeOf(s),
+                    (dst, off) -> BinaryEncoder.encodeString(dst, off, s), dst -> BinaryEncoder.encodeString(dst, s));
+            assertEncoded(encoded(out -> out.writeChars(ch)), BinaryEncoder.sizeOf(ch),
+                    (dst, off) -> BinaryEncoder.encodeChars(dst, off, ch), dst -> BinaryEncoder.encodeChars(dst, ch));
+        }
+        for (byte[] b : new byte[][]{ new byte[0], sequence(7), sequence(300) }) {
+            assertEncoded(encoded(out -> out.writeCustomInt(b)), BinaryEncoder.sizeOfCustomInt(b),
+                    (dst, off) -> BinaryEncoder.encodeCustomInt(dst, off, b), dst -> BinaryEncoder.encodeCustomInt(dst, b));
+        }
+        byte[][] parts = new byte[][]{ sequence(3), null, sequence(200) };
+        assertEncoded(encoded(out -> out.writeCustomLong(parts)), BinaryEncoder.sizeOfCustomLong(parts),
+                (dst, off) -> BinaryEncoder.encodeCustomLong(dst, off, parts), dst -> BinaryEncoder.encodeCustomLong(dst, parts));
+    }
+
+    /**
+     * Returns the bytes written by a BinaryOutput
+     * @param writing   writing of one field
+     * @return  written bytes
+     */
+    private static byte[] encoded(Writing writing) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        writing.write(new BinaryOutput(bos));
+        return bos.toByteArray();
+    }
+
+    /**
+     * Checks the size and the encoding into byte[] and ByteBuffers against the expected bytes
+     * @param expected  bytes written by BinaryOutput
+     * @param size      size returned by sizeOf
+     * @param array     encoding into byte[]
+     * @param buffer    encoding into ByteBuffer
+     */
+    private static void assertEncoded(byte[] expected, long size, ArrayEncoding array, BufferEncoding buffer) {
+        assertEquals(expected.length, size);
+        // at an offset, leaving the other bytes untouched
+        byte[] dst = new byte[expected.length + 10];
+        Arrays.fill(dst, (byte)0x55);
+        assertEquals(expected.length, array.encode(dst, 3));
+        assertArrayEquals(expected, Arrays.copyOfRange(dst, 3, 3 + expected.length));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0x55, dst[i]);
+        }
+        for (int i = 3 + expected.length; i < dst.length; i++) {
+            assertEquals(0x55, dst[i]);
+        }
+        // too small, nothing written
+        byte[] small = new byte[expected.length + 2];
+        assertEquals(-1, array.encode(small, 3));
+        assertArrayEquals(new byte[small.length], small);
+        ByteBuffer[] buffers = new ByteBuffer[]{
+            ByteBuffer.allocate(expected.length + 4),
+            ByteBuffer.allocate(expected.length + 4).order(ByteOrder.LITTLE_ENDIAN),
+            ByteBuffer.allocateDirect(expected.length + 4),
+            ByteBuffer.allocateDirect(expected.length + 4).order(ByteOrder.LITTLE_ENDIAN)
+        };
+        for (ByteBuffer buf : buffers) {
+            buf.position(4);
+            assertEquals(expected.length, buffer.encode(buf));
+            assertEquals(expected.length + 4, buf.position());
+            byte[] written = new byte[expected.length];
+            buf.position(4);
+            buf.get(written);
+            assertArrayEquals(expected, written);
+            buf.position(buf.limit() - expected.length + 1);
+            assertEquals(-1, buffer.encode(buf));
+            assertEquals(buf.limit() - expected.length + 1, buf.position());
+        }
+    }
+
+    /**
+     * Writing of one field with a BinaryOutput
+     */
+    private interface Writing {
+        void write(BinaryOutput out);
+    }
+
+    /**
+     * Encoding into byte[] at an offset
+     */
+    private interface ArrayEncoding {
+        int encode(byte[] dst, int off);
+    }
+
+    /**
+     * Encoding into a ByteBuffer
+     */
+    private interface BufferEncoding {
+        int encode(ByteBuffer dst);
+    }
+
+}
@@ -0,0 +1,159 @@
+package com.github.nilscoding.seqdatastore;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static com.github.nilscoding.seqdatastore.TestSupport.assertField;
+import static com.github.nilscoding.seqdatastore.TestSupport.readAll;
+import static com.github.nilscoding.seqdatastore.TestSupport.repeat;
+import static com.github.nilscoding.seqdatastore.TestSupport.sequence;
+
+/**
+ * Round-trip tests of BinaryOutput and BinaryInput: buffering, short reads and marker masks
+ * @author NilsCoding
+ */
+public class BinaryInputTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Writes one field of each type, with payloads larger than the minimum buffer size
+     * @param out   binary output
+     */
+    static void writeAllTypes(BinaryOutput out) {
+        out.writeInt(-42)
+                .writeLong(Long.MIN_VALUE)
+                .writeDouble(-1.5)
+                .writeDate(new Date(1234567890123L))
+                .writeDate(null)
+                .writeBytes(sequence(100))
+                .writeBytes(null)
+                .writeChars("chars äöü".toCharArray())
+                .writeChars(null)
+                .writeString(repeat("string € ", 20))
+                .writeString(null)
+                .writeCustomInt(sequence(40))
+                .writeCustomLong(sequence(10), null, sequence(30));
+    }
+
+    /**
+     * Checks the fields written by writeAllTypes
+     * @param fields    fields read
+     */
+    static void assertAllTypes(List<BinaryInputData> fields) {
+        assertEquals(13, fields.size());
+        for (BinaryInputData data : fields) {
+            assertTrue(data.isValid());
+        }
+        assertField(fields.get(0), MagicMarker.INT, -42);
+        assertField(fields.get(1), MagicMarker.LONG, Long.MIN_VALUE);
+        assertField(fields.get(2), MagicMarker.DOUBLE, -1.5);
+        assertField(fields.get(3), MagicMarker.DATE, new Date(1234567890123L));
+        assertField(fields.get(4), MagicMarker.DATE_NULL, null);
+        assertEquals(MagicMarker.BYTES, fields.get(5).getType());
+        assertArrayEquals(sequence(100), (byte[])fields.get(5).getValue());
+        assertField(fields.get(6), MagicMarker.BYTES_NULL, null);
+        assertEquals(MagicMarker.CHARS, fields.get(7).getType());
+        assertArrayEquals("chars äöü".toCharArray(), (char[])fields.get(7).getValue());
+        assertField(fields.get(8), MagicMarker.CHARS_NULL, null);
+        assertField(fields.get(9), MagicMarker.STRING, repeat("string € ", 20));
+        assertField(fields.get(10), MagicMarker.STRING_NULL, null);
+        assertEquals(MagicMarker.CUSTOM_INT, fields.get(11).getType());
+        assertArrayEquals(sequence(40), (byte[])fields.get(11).getValue());
+        assertEquals(MagicMarker.CUSTOM_LONG, fields.get(12).getType());
+        byte[] custom = new byte[40];
+        System.arraycopy(sequence(10), 0, custom, 0, 10);
+        System.arraycopy(sequence(30), 0, custom, 10, 30);
+        assertArrayEquals(custom, (byte[])fields.get(12).getValue());
+    }
+
+    @Test
+    public void roundTripAllTypes() {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        writeAllTypes(new BinaryOutput(bos));
+        assertAllTypes(readAll(new BinaryInput(new ByteArrayInputStream(bos.toByteArray()))));
+    }
+
+    @Test
+    public void roundTripTrickleStreamWithMinimumBuffer() {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        writeAllTypes(new BinaryOutput(bos));
+        byte[] data = bos.toByteArray();
+        BinaryInput input = new BinaryInput(new TestSupport.TrickleInputStream(new ByteArrayInputStream(data)), 0L, 1);
+        assertEquals(BinaryInput.MIN_BUFFER_SIZE, input.getBufferSize());
+        List<BinaryInputData> fields = readAll(input);
+        assertAllTypes(fields);
+        assertEquals(data.length, input.getRelativePosition());
+    }
+
+    @Test
+    public void truncatedDataIsInvalid() {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        new BinaryOutput(bos).writeInt(1).writeString("truncated");
+        byte[] data = bos.toByteArray();
+        byte[] truncated = new byte[data.length - 3];
+        System.arraycopy(data, 0, truncated, 0, truncated.length);
+        List<BinaryInputData> fields = readAll(new BinaryInput(new TestSupport.TrickleInputStream(new ByteArrayInputStream(truncated))));
+        assertEquals(2, fields.size());
+        assertTrue(fields.get(0).isValid());
+        assertEquals(MagicMarker.STRING, fields.get(1).getType());
+        assertFalse(fields.get(1).isValid());
+    }
+
+    @Test
+    public void maskedFieldsAreSkipped() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        BinaryOutput out = new BinaryOutput(bos);
+        for (int i = 0; i < 100; i++) {
+            out.writeBytes(sequence(1000)).writeInt(i).writeString(repeat("x", 500));
+        }
+        byte[] data = bos.toByteArray();
+        try (FileInputStream in = new FileInputStream(TestSupport.write(this.folder, data))) {
+            // skipping within the buffer, via skip(n) of the stream and via the channel position
+            List<BinaryInput> inputs = new ArrayList<>();
+            inputs.add(new BinaryInput(new ByteArrayInputStream(data)));
+            inputs.add(new BinaryInput(new TestSupport.TrickleInputStream(new ByteArrayInputStream(data)), 0L, 16));
+            inputs.add(new BinaryInput(in, 0L, 16));
+            assertMaskedFields(inputs, data.length);
+        }
+    }
+
+    /**
+     * Checks the fields written by maskedFieldsAreSkipped, read with an INT marker mask
+     * @param inputs    binary inputs
+     * @param length    data length
+     */
+    private static void assertMaskedFields(List<BinaryInput> inputs, int length) {
+        for (BinaryInput input : inputs) {
+            input.setMarkerMask(MagicMarker.INT);
+            List<BinaryInputData> fields = readAll(input);
+            assertEquals(300, fields.size());
+            for (int i = 0; i < 100; i++) {
+                BinaryInputData bytes = fields.get(i * 3);
+                assertEquals(MagicMarker.BYTES, bytes.getType());
+                assertTrue(bytes.isValid());
+                assertNull(bytes.getValue());
+                assertField(fields.get(i * 3 + 1), MagicMarker.INT, i);
+                assertEquals(i * 2015L + 1005L, fields.get(i * 3 + 1).getPosition());
+                assertEquals(MagicMarker.STRING, fields.get(i * 3 + 2).getType());
+                assertNull(fields.get(i * 3 + 2).getValue());
+            }
+            assertEquals(length, input.getRelativePosition());
+        }
+    }
+
+}
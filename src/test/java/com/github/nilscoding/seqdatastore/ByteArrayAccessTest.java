@@ -0,0 +1,164 @@
+package com.github.nilscoding.seqdatastore;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of the Java 9+ ByteArrayAccess and OrderedAccess (VarHandles) against the Java 8 versions<br>
+ * The tests run on the class directory, which is not read as a multi-release JAR, so the Java 9+ classes
+ * are loaded from META-INF/versions/9 with a separate class loader.
+ * @author NilsCoding
+ */
+public class ByteArrayAccessTest {
+
+    protected static final String VERSIONED_PREFIX = "META-INF/versions/9/";
+
+    @Test
+    public void sameBytesAsJava8() throws Exception {
+        Class<?> versioned = loadVersioned(ByteArrayAccess.class);
+        Method getShort = method(versioned, "getShort", byte[].class, int.class);
+        Method putShort = method(versioned, "putShort", byte[].class, int.class, short.class);
+        Method getInt = method(versioned, "getInt", byte[].class, int.class);
+        Method putInt = method(versioned, "putInt", byte[].class, int.class, int.class);
+        Method getLong = method(versioned, "getLong", byte[].class, int.class);
+        Method putLong = method(versioned, "putLong", byte[].class, int.class, long.class);
+        Random random = new Random(42L);
+        byte[] data = new byte[64];
+        random.nextBytes(data);
+        // all offsets, aligned and unaligned, up to the end of the array
+        for (int off = 0; off <= data.length - 2; off++) {
+            assertEquals(ByteArrayAccess.getShort(data, off), getShort.invoke(null, data, off));
+            short s = (short)random.nextInt();
+            byte[] expected = data.clone();
+            byte[] actual = data.clone();
+            ByteArrayAccess.putShort(expected, off, s);
+            putShort.invoke(null, actual, off, s);
+            assertArrayEquals(expected, actual);
+        }
+        for (int off = 0; off <= data.length - 4; off++) {
+            assertEquals(ByteArrayAccess.getInt(data, off), getInt.invoke(null, data, off));
+            int i = random.nextInt();
+            byte[] expected = data.clone();
+            byte[] actual = data.clone();
+            ByteArrayAccess.putInt(expected, off, i);
+            putInt.invoke(null, actual, off, i);
+            assertArrayEquals(expected, actual);
+        }
+        for (int off = 0; off <= data.length - 8; off++) {
+            assertEquals(ByteArrayAccess.getLong(data, off), getLong.invoke(null, data, off));
+            long l = random.nextLong();
+            byte[] expected = data.clone();
+            byte[] actual = data.clone();
+            ByteArrayAccess.putLong(expected, off, l);
+            putLong.invoke(null, actual, off, l);
+            assertArrayEquals(expected, actual);
+        }
+        for (long l : new long[]{ 0L, -1L, Long.MIN_VALUE, Long.MAX_VALUE, 0x0102030405060708L }) {
+            byte[] expected = new byte[9];
+            byte[] actual = new byte[9];
+            ByteArrayAccess.putLong(expected, 1, l);
+            putLong.invoke(null, actual, 1, l);
+            assertArrayEquals(expected, actual);
+            assertEquals(l, getLong.invoke(null, actual, 1));
+        }
+        // like the Java 8 version, the Java 9+ version fails outside of the array
+        assertOutOfBounds(getInt, data, data.length - 3);
+        assertOutOfBounds(getLong, data, -1);
+        assertOutOfBounds(putShort, data, data.length - 1, (short)1);
+    }
+
+    @Test
+    public void orderedAccessSameAsJava8() throws Exception {
+        Class<?> versioned = loadVersioned(OrderedAccess.class);
+        Method getLongAcquire = method(versioned, "getLongAcquire", ByteBuffer.class, int.class);
+        Method putLongRelease = method(versioned, "putLongRelease", ByteBuffer.class, int.class, long.class);
+        Random random = new Random(42L);
+        // acquire/release access requires aligned indexes
+        ByteBuffer expected = ByteBuffer.allocateDirect(64);
+        ByteBuffer actual = ByteBuffer.allocateDirect(64);
+        for (int index = 0; index < 64; index += 8) {
+            long l = random.nextLong();
+            OrderedAccess.putLongRelease(expected, index, l);
+            putLongRelease.invoke(null, actual, index, l);
+            assertEquals(l, getLongAcquire.invoke(null, expected, index));
+            assertEquals(OrderedAccess.getLongAcquire(actual, index), getLongAcquire.invoke(null, actual, index));
+        }
+        assertEquals(expected, actual);
+    }
+
+    /**
+     * Checks that invoking the given method throws an IndexOutOfBoundsException, like the Java 8 version
+     * @param method    method of the Java 9+ class
+     * @param args      arguments
+     */
+    private static void assertOutOfBounds(Method method, Object... args) throws IllegalAccessException {
+        try {
+            method.invoke(null, args);
+            fail("expected IndexOutOfBoundsException");
+        } catch (InvocationTargetException ex) {
+            assertTrue(ex.getCause() instanceof IndexOutOfBoundsException);
+        }
+    }
+
+    /**
+     * Returns the given static method, made accessible because the classes are package-private
+     * @param type  class
+     * @param name  method name
+     * @param parameterTypes    parameter types
+     * @return  method
+     */
+    private static Method method(Class<?> type, String name, Class<?>... parameterTypes) throws NoSuchMethodException {
+        Method method = type.getDeclaredMethod(name, parameterTypes);
+        method.setAccessible(true);
+        return method;
+    }
+
+    /**
+     * Loads the Java 9+ version of the given class in a separate class loader
+     * @param type  Java 8 class
+     * @return  Java 9+ class
+     */
+    private static Class<?> loadVersioned(Class<?> type) throws IOException {
+        String resource = VERSIONED_PREFIX + type.getName().replace('.', '/') + ".class";
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (InputStream in = type.getClassLoader().getResourceAsStream(resource)) {
+            assertNotNull("missing " + resource + ", run the build to compile src/main/java9", in);
+            byte[] buffer = new byte[4096];
+            int len;
+            while ((len = in.read(buffer)) > 0) {
+                bos.write(buffer, 0, len);
+            }
+        }
+        Class<?> versioned = new VersionedClassLoader(type.getClassLoader()).define(type.getName(), bos.toByteArray());
+        assertTrue(versioned != type);
+        return versioned;
+    }
+
+    /**
+     * Class loader defining a single class from given bytes
+     */
+    private static final class VersionedClassLoader extends ClassLoader {
+
+        VersionedClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(String name, byte[] data) {
+            return this.defineClass(name, data, 0, data.length);
+        }
+
+    }
+
+}
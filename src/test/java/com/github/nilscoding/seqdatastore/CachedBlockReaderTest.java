@@ -0,0 +1,132 @@
+package com.github.nilscoding.seqdatastore;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static com.github.nilscoding.seqdatastore.TestSupport.assertField;
+import static com.github.nilscoding.seqdatastore.TestSupport.sequence;
+
+/**
+ * Tests of CachedBlockReader and BlockCache: cached and uncacheable blocks, copies, eviction and the counters
+ * @author NilsCoding
+ */
+public class CachedBlockReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<Long> positions = new ArrayList<>();
+
+    /**
+     * Writes 300 records of LONG, DATE and BYTES values, delta encoded, with trailers, in blocks of about 1000 bytes
+     * @param file  store file
+     * @return  block statistics
+     * @throws IOException  if writing fails
+     */
+    private BlockStatistics writeStore(File file) throws IOException {
+        BlockStatistics statistics = new BlockStatistics();
+        try (OutputStream out = new FileOutputStream(file)) {
+            BinaryOutput binOut = new BinaryOutput(out);
+            binOut.setBlockStatistics(statistics);
+            binOut.setBlockSize(1000);
+            binOut.setDeltaEncoding(true);
+            for (int i = 0; i < 300; i++) {
+                this.positions.add(binOut.getPosition());
+                binOut.writeLong(i * 10L);
+                this.positions.add(binOut.getPosition());
+                binOut.writeDate(new Date(i * 1000L));
+                this.positions.add(binOut.getPosition());
+                binOut.writeBytes(sequence(i % 20)).writeTrailer();
+            }
+            binOut.endBlock();
+        }
+        return statistics;
+    }
+
+    /**
+     * Checks all fields read by position
+     * @param reader    cached block reader
+     */
+    private void assertFields(CachedBlockReader reader) {
+        for (int i = 0; i < 300; i++) {
+            assertField(reader.read(this.positions.get(i * 3)), MagicMarker.LONG, i * 10L);
+            assertField(reader.read(this.positions.get(i * 3 + 1)), MagicMarker.DATE, new Date(i * 1000L));
+            assertArrayEquals(sequence(i % 20), reader.read(this.positions.get(i * 3 + 2)).getBytesValue());
+        }
+        assertNull(reader.read(this.positions.get(1) + 1));
+    }
+
+    @Test
+    public void blocksAreCached() throws IOException {
+        File file = this.folder.newFile();
+        BlockStatistics statistics = this.writeStore(file);
+        BlockCache cache = new BlockCache(1024L * 1024L, 4);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            CachedBlockReader reader = new CachedBlockReader(raf.getChannel(), file, statistics, cache);
+            assertFields(reader);
+            assertEquals(statistics.getBlocks().size(), cache.getMissCount());
+            assertEquals(0L, cache.getRejectionCount());
+            assertTrue(cache.getHitCount() > 0L);
+            // the cached fields are copies
+            BinaryInputData bytes = reader.read(this.positions.get(17));
+            ((byte[])bytes.getValue())[0]++;
+            assertArrayEquals(sequence(5), reader.read(this.positions.get(17)).getBytesValue());
+            DecodedBlock block = reader.getBlock(statistics.getBlocks().get(0));
+            assertSame(block, reader.getBlock(statistics.getBlocks().get(0)));
+            assertNotSame(block.getFields()[0], block.getFields()[0]);
+        }
+    }
+
+    @Test
+    public void oversizedBlocksAreRejected() throws IOException {
+        File file = this.folder.newFile();
+        BlockStatistics statistics = this.writeStore(file);
+        BlockCache cache = new BlockCache(1000L, 4);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            CachedBlockReader reader = new CachedBlockReader(raf.getChannel(), file, statistics, cache);
+            assertFields(reader);
+            assertEquals(0L, cache.getSize());
+            assertEquals(0L, cache.getHitCount());
+            assertEquals(cache.getMissCount(), cache.getRejectionCount());
+        }
+    }
+
+    @Test
+    public void leastRecentlyUsedBlocksAreEvicted() {
+        BlockCache cache = new BlockCache(300L, 1);
+        DecodedBlock[] blocks = new DecodedBlock[4];
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = new DecodedBlock(new BinaryInputData[0], 100L);
+            assertSame(blocks[i], cache.put("file", i, blocks[i]));
+            // keep block 0 recently used
+            assertSame(blocks[0], cache.get("file", 0L));
+        }
+        assertEquals(300L, cache.getSize());
+        assertEquals(1L, cache.getEvictionCount());
+        assertNull(cache.get("file", 1L));
+        assertSame(blocks[3], cache.get("file", 3L));
+        // an existing block is kept
+        assertSame(blocks[3], cache.put("file", 3L, new DecodedBlock(new BinaryInputData[0], 100L)));
+        assertSame(blocks[2], cache.put("file", 2L, blocks[2]));
+        cache.put("file", 5L, new DecodedBlock(new BinaryInputData[0], 301L));
+        assertEquals(1L, cache.getRejectionCount());
+        cache.clear();
+        assertEquals(0L, cache.getSize());
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.github.nilscoding.seqdatastore;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Date;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static com.github.nilscoding.seqdatastore.TestSupport.assertField;
+import static com.github.nilscoding.seqdatastore.TestSupport.readAll;
+
+/**
+ * Tests of delta-of-delta encoded LONG and DATE values
+ * @author NilsCoding
+ */
+public class DeltaEncodingTest {
+
+    @Test
+    public void deltaMarkersRoundTrip() {
+        long[] longs = new long[]{ 0L, 10L, 20L, 31L, -5L, Long.MAX_VALUE, Long.MIN_VALUE, 7L, 7L, 7L };
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        BinaryOutput out = new BinaryOutput(bos);
+        out.setDeltaEncoding(true);
+        out.setBlockSize(64);
+        for (int i = 0; i < 50; i++) {
+            for (long l : longs) {
+                out.writeLong(l + i);
+            }
+            out.writeDate(new Date(1500000000000L + i * 1000L)).writeInt(i).writeDate(null);
+        }
+        out.endBlock();
+        byte[] data = bos.toByteArray();
+        boolean hasLongDelta = false;
+        boolean hasDateDelta = false;
+        for (byte b : data) {
+            hasLongDelta |= (b == MagicMarker.LONG_DELTA);
+            hasDateDelta |= (b == MagicMarker.DATE_DELTA);
+        }
+        assertTrue(hasLongDelta && hasDateDelta);
+        BinaryInput input = new BinaryInput(new TestSupport.TrickleInputStream(new ByteArrayInputStream(data)), 0L, 16);
+        List<BinaryInputData> fields = readAll(input);
+        assertEquals(50 * (longs.length + 3), fields.size());
+        int index = 0;
+        for (int i = 0; i < 50; i++) {
+            for (long l : longs) {
+                assertField(fields.get(index++), MagicMarker.LONG, l + i);
+            }
+            assertField(fields.get(index++), MagicMarker.DATE, new Date(1500000000000L + i * 1000L));
+            assertField(fields.get(index++), MagicMarker.INT, i);
+            assertField(fields.get(index++), MagicMarker.DATE_NULL, null);
+        }
+        // next() decodes the same values
+        BinaryInput next = new BinaryInput(new ByteArrayInputStream(data));
+        index = 0;
+        while (next.next()) {
+            BinaryInputData field = fields.get(index++);
+            assertEquals(field.getType(), next.getLastType());
+            if (field.getValue() != null) {
+                assertEquals(field.getLongValue(), next.getLastLong());
+            }
+        }
+        assertEquals(fields.size(), index);
+    }
+
+    @Test
+    public void blocksDecodeOnTheirOwn() {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        BinaryOutput out = new BinaryOutput(bos);
+        BlockStatistics statistics = new BlockStatistics();
+        out.setBlockStatistics(statistics);
+        out.setDeltaEncoding(true);
+        out.setBlockSize(50);
+        for (int i = 0; i < 200; i++) {
+            out.writeLong(1000L + i * 3L).writeDate(new Date(i * 1000L));
+        }
+        out.endBlock();
+        byte[] data = bos.toByteArray();
+        assertTrue(statistics.getBlocks().size() > 1);
+        for (BlockStatistics.Block block : statistics.getBlocks()) {
+            // each block starts with full values, so it can be read from its start position
+            ByteArrayInputStream in = new ByteArrayInputStream(data, (int)block.getStart(), (int)block.getLength());
+            List<BinaryInputData> fields = readAll(new BinaryInput(in, block.getStart()));
+            assertEquals(block.getFieldCount(), fields.size());
+            for (int i = 0; i < fields.size(); i++) {
+                long index = (block.getFirstField() + i) / 2;
+                if ((block.getFirstField() + i) % 2 == 0) {
+                    assertField(fields.get(i), MagicMarker.LONG, 1000L + index * 3L);
+                } else {
+                    assertField(fields.get(i), MagicMarker.DATE, new Date(index * 1000L));
+                }
+            }
+        }
+    }
+
+}
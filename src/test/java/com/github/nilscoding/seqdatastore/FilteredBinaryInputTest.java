@@ -0,0 +1,104 @@
+package com.github.nilscoding.seqdatastore;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of block statistics and of FilteredBinaryInput skipping blocks
+ * @author NilsCoding
+ */
+public class FilteredBinaryInputTest {
+
+    /**
+     * Writes 1000 INT values in blocks of 20 fields and 7 more values after the last finished block
+     * @param bos       output
+     * @return  statistics of the finished blocks
+     */
+    private static BlockStatistics writeBlocks(ByteArrayOutputStream bos) {
+        BinaryOutput out = new BinaryOutput(bos);
+        BlockStatistics statistics = new BlockStatistics();
+        out.setBlockStatistics(statistics);
+        out.setBlockSize(100);
+        for (int i = 0; i < 1000; i++) {
+            out.writeInt(i);
+        }
+        for (int i = 1000; i < 1007; i++) {
+            out.writeInt(i);
+        }
+        return statistics;
+    }
+
+    @Test
+    public void statisticsRoundTrip() {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        BlockStatistics statistics = writeBlocks(bos);
+        assertEquals(50, statistics.getBlocks().size());
+        ByteArrayOutputStream statBos = new ByteArrayOutputStream();
+        assertTrue(statistics.write(statBos));
+        BlockStatistics read = BlockStatistics.read(new ByteArrayInputStream(statBos.toByteArray()));
+        assertNotNull(read);
+        assertEquals(statistics.getBlocks().size(), read.getBlocks().size());
+        for (int i = 0; i < read.getBlocks().size(); i++) {
+            BlockStatistics.Block block = read.getBlocks().get(i);
+            assertEquals(i * 100L, block.getStart());
+            assertEquals(100L, block.getLength());
+            assertEquals(i * 20L, block.getFirstField());
+            assertEquals(20L, block.getFieldCount());
+            assertTrue(block.hasRange(MagicMarker.INT));
+            assertEquals(i * 20L, block.getMin(MagicMarker.INT));
+            assertEquals(i * 20L + 19L, block.getMax(MagicMarker.INT));
+            assertFalse(block.hasRange(MagicMarker.LONG));
+        }
+        assertNull(BlockStatistics.read(new ByteArrayInputStream(new byte[]{ 1, 2, 3 })));
+    }
+
+    @Test
+    public void nonMatchingBlocksAreSkipped() {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        BlockStatistics statistics = writeBlocks(bos);
+        FilteredBinaryInput input = new FilteredBinaryInput(new ByteArrayInputStream(bos.toByteArray()), statistics,
+                BlockPredicates.range(MagicMarker.INT, 450, 455));
+        List<Integer> values = readValues(input);
+        // the matching block of 20 values and the 7 values after the last block
+        assertEquals(27, values.size());
+        assertEquals(Integer.valueOf(440), values.get(0));
+        assertEquals(Integer.valueOf(459), values.get(19));
+        assertEquals(Integer.valueOf(1000), values.get(20));
+        assertEquals(Integer.valueOf(1006), values.get(26));
+    }
+
+    @Test
+    public void dataAfterLastBlockIsReturned() {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        BlockStatistics statistics = writeBlocks(bos);
+        FilteredBinaryInput input = new FilteredBinaryInput(new ByteArrayInputStream(bos.toByteArray()), statistics,
+                BlockPredicates.range(MagicMarker.INT, 1003, 1003));
+        List<Integer> values = readValues(input);
+        assertEquals(7, values.size());
+        assertEquals(Integer.valueOf(1000), values.get(0));
+    }
+
+    /**
+     * Reads all INT values of a filtered input
+     * @param input filtered binary input
+     * @return  values
+     */
+    private static List<Integer> readValues(FilteredBinaryInput input) {
+        List<Integer> values = new ArrayList<>();
+        BinaryInputData data;
+        while ((data = input.read()) != null) {
+            values.add((Integer)data.getValue());
+        }
+        return values;
+    }
+
+}
@@ -0,0 +1,135 @@
+package com.github.nilscoding.seqdatastore;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of KeyIndex: building, lookups, sorting and the file format
+ * @author NilsCoding
+ */
+public class KeyIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void lookupLongAndStringKeys() throws IOException {
+        File store = this.folder.newFile();
+        long[] positions = new long[100];
+        try (OutputStream out = new FileOutputStream(store)) {
+            BinaryOutput binOut = new BinaryOutput(out);
+            for (int i = 0; i < 100; i++) {
+                positions[i] = binOut.getPosition();
+                binOut.writeLong(i % 10).writeString("key " + (i % 10));
+            }
+        }
+        File longIndex = this.folder.newFile();
+        assertTrue(KeyIndex.build(store, 2, 0, MagicMarker.LONG, longIndex));
+        try (KeyIndex index = new KeyIndex(longIndex)) {
+            assertEquals(MagicMarker.LONG, index.getKeyType());
+            assertEquals(100, index.size());
+            assertArrayEquals(new long[]{ positions[3], positions[13], positions[23], positions[33], positions[43],
+                positions[53], positions[63], positions[73], positions[83], positions[93] }, index.lookup(3L));
+            assertEquals(0, index.lookup(10L).length);
+        }
+        File stringIndex = this.folder.newFile();
+        assertTrue(KeyIndex.build(store, 2, 1, MagicMarker.STRING, stringIndex));
+        try (KeyIndex index = new KeyIndex(stringIndex); RandomAccessFile raf = new RandomAccessFile(store, "r")) {
+            long[] found = index.find("key 7", raf.getChannel());
+            assertEquals(10, found.length);
+            assertEquals(positions[7] + 9L, found[0]);
+            assertEquals(0, index.find("key 70", raf.getChannel()).length);
+        }
+    }
+
+    @Test
+    public void deltaEncodedStoreIsNotIndexed() throws IOException {
+        File store = this.folder.newFile();
+        try (OutputStream out = new FileOutputStream(store)) {
+            BinaryOutput binOut = new BinaryOutput(out);
+            binOut.setDeltaEncoding(true);
+            for (int i = 0; i < 10; i++) {
+                binOut.writeLong(i).writeInt(i);
+            }
+        }
+        assertFalse(KeyIndex.build(store, 2, 1, MagicMarker.INT, this.folder.newFile()));
+    }
+
+    @Test
+    public void otherVersionIsRejected() throws IOException {
+        File store = this.folder.newFile();
+        try (OutputStream out = new FileOutputStream(store)) {
+            new BinaryOutput(out).writeInt(1);
+        }
+        File indexFile = this.folder.newFile();
+        assertTrue(KeyIndex.build(store, 1, 0, MagicMarker.INT, indexFile));
+        try (RandomAccessFile raf = new RandomAccessFile(indexFile, "rw")) {
+            assertEquals(KeyIndex.FORMAT_VERSION, readInt(raf, 12));
+            raf.seek(12);
+            raf.writeInt(KeyIndex.FORMAT_VERSION + 1);
+        }
+        try (KeyIndex index = new KeyIndex(indexFile)) {
+            fail("opened index file of version " + (KeyIndex.FORMAT_VERSION + 1));
+        } catch (IOException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void stringHashIsStable() {
+        // the hash is part of the file format
+        assertEquals(0xefd01f60ba992926L, KeyIndex.hash(""));
+        assertEquals(0x4cd2d9c2f6e96946L, KeyIndex.hash("key"));
+    }
+
+    @Test
+    public void sortOrdersByKeyAndPosition() {
+        Random random = new Random(1);
+        for (int size : new int[]{ 0, 1, 2, 17, 1000, 5000 }) {
+            long[] keys = new long[size];
+            long[] positions = new long[size];
+            for (int i = 0; i < size; i++) {
+                // many duplicates, including extreme values
+                int k = random.nextInt(20);
+                keys[i] = (k == 0) ? Long.MIN_VALUE : ((k == 1) ? Long.MAX_VALUE : k);
+                positions[i] = random.nextInt(size * 2 + 1);
+            }
+            long[] sortedKeys = keys.clone();
+            long[] sortedPositions = positions.clone();
+            KeyIndex.sort(sortedKeys, sortedPositions, 0, size - 1);
+            for (int i = 1; i < size; i++) {
+                assertTrue(KeyIndex.compare(sortedKeys, sortedPositions, i - 1, i) <= 0);
+            }
+            // same entries as before
+            long[] entries = new long[size];
+            long[] sortedEntries = new long[size];
+            for (int i = 0; i < size; i++) {
+                entries[i] = keys[i] * 31L + positions[i];
+                sortedEntries[i] = sortedKeys[i] * 31L + sortedPositions[i];
+            }
+            Arrays.sort(entries);
+            Arrays.sort(sortedEntries);
+            assertArrayEquals(entries, sortedEntries);
+        }
+    }
+
+    private static int readInt(RandomAccessFile raf, long pos) throws IOException {
+        raf.seek(pos);
+        return raf.readInt();
+    }
+
+}
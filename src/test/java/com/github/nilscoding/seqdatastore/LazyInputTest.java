@@ -0,0 +1,138 @@
+package com.github.nilscoding.seqdatastore;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static com.github.nilscoding.seqdatastore.TestSupport.readAll;
+import static com.github.nilscoding.seqdatastore.TestSupport.repeat;
+import static com.github.nilscoding.seqdatastore.TestSupport.sequence;
+
+/**
+ * Tests of lazy reading: numeric values kept as bits and payloads read on first access
+ * @author NilsCoding
+ */
+public class LazyInputTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void lazyWithoutReader() {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        BinaryInputTest.writeAllTypes(new BinaryOutput(bos));
+        BinaryInput input = new BinaryInput(new TestSupport.TrickleInputStream(new ByteArrayInputStream(bos.toByteArray())), 0L, 16);
+        input.setLazy(true);
+        List<BinaryInputData> fields = readAll(input);
+        assertEquals(-42, fields.get(0).getIntValue());
+        assertEquals(-1.5, fields.get(2).getDoubleValue(), 0.0);
+        assertEquals(repeat("string € ", 20), fields.get(9).getStringValue());
+        BinaryInputTest.assertAllTypes(fields);
+    }
+
+    @Test
+    public void payloadsAreReadOnFirstAccess() {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        BinaryInputTest.writeAllTypes(new BinaryOutput(bos));
+        byte[] data = bos.toByteArray();
+        CountingReader reader = new CountingReader(PositionalReaders.of(data));
+        BinaryInput input = new BinaryInput(new ByteArrayInputStream(data), 0L, 16);
+        input.setReferenceReader(reader);
+        input.setLazy(true);
+        List<BinaryInputData> fields = readAll(input);
+        assertEquals(data.length, input.getRelativePosition());
+        assertEquals(0, reader.reads);
+        assertArrayEquals(sequence(100), fields.get(5).getBytesValue());
+        assertEquals(1, reader.reads);
+        // the value is kept after the first access
+        assertArrayEquals(sequence(100), fields.get(5).getBytesValue());
+        assertEquals(1, reader.reads);
+        BinaryInputTest.assertAllTypes(fields);
+        // BYTES, CHARS, STRING, CUSTOM_INT and CUSTOM_LONG
+        assertEquals(5, reader.reads);
+    }
+
+    @Test
+    public void copiesReadPayloadsOnTheirOwn() {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        new BinaryOutput(bos).writeString("copied");
+        byte[] data = bos.toByteArray();
+        BinaryInput input = new BinaryInput(new ByteArrayInputStream(data));
+        input.setReferenceReader(PositionalReaders.of(data));
+        input.setLazy(true);
+        BinaryInputData field = input.read();
+        BinaryInputData copy = field.copy();
+        assertEquals("copied", field.getStringValue());
+        assertEquals("copied", copy.getStringValue());
+    }
+
+    @Test
+    public void payloadOfClosedFileIsInvalid() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        new BinaryOutput(bos).writeBytes(sequence(50)).writeString("file");
+        BinaryInputData bytes;
+        BinaryInputData string;
+        try (FileInputStream in = new FileInputStream(TestSupport.write(this.folder, bos.toByteArray()))) {
+            BinaryInput input = new BinaryInput(in);
+            input.setLazy(true);
+            bytes = input.read();
+            string = input.read();
+            assertEquals("file", string.getStringValue());
+        }
+        assertTrue(bytes.isValid());
+        assertNull(bytes.getValue());
+        assertFalse(bytes.isValid());
+        assertEquals("file", string.getStringValue());
+    }
+
+    @Test
+    public void lazyReferencesAndOffHeapStore() {
+        try (OffHeapStore store = new OffHeapStore(64)) {
+            BinaryOutput out = new BinaryOutput(store.getOutputStream());
+            out.setDeduplicationSize(16);
+            for (int i = 0; i < 5; i++) {
+                out.writeCustomInt(sequence(100)).writeString(repeat("off-heap ", i));
+            }
+            BinaryInput input = new BinaryInput(store.getInputStream(0L));
+            input.setLazy(true);
+            List<BinaryInputData> fields = readAll(input);
+            assertEquals(10, fields.size());
+            for (int i = 0; i < 5; i++) {
+                assertEquals(MagicMarker.CUSTOM_INT, fields.get(i * 2).getType());
+                assertArrayEquals(sequence(100), fields.get(i * 2).getBytesValue());
+                assertEquals(repeat("off-heap ", i), fields.get(i * 2 + 1).getStringValue());
+            }
+        }
+    }
+
+    /**
+     * Positional reader counting the reads
+     */
+    private static class CountingReader implements PositionalReader {
+
+        private final PositionalReader reader;
+        private int reads = 0;
+
+        CountingReader(PositionalReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public int read(long position, byte[] data, int off, int len) throws IOException {
+            this.reads++;
+            return this.reader.read(position, data, off, len);
+        }
+
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.github.nilscoding.seqdatastore;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static com.github.nilscoding.seqdatastore.TestSupport.assertField;
+import static com.github.nilscoding.seqdatastore.TestSupport.readAll;
+import static com.github.nilscoding.seqdatastore.TestSupport.sequence;
+
+/**
+ * Tests of OffHeapStore: chunked writes and reads, snapshots to files and releasing the memory
+ * @author NilsCoding
+ */
+public class OffHeapStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Writes 100 records of an INT and a BYTES field crossing chunk boundaries
+     * @param store off-heap store
+     * @return  positions of the BYTES fields
+     */
+    private static long[] writeRecords(OffHeapStore store) {
+        BinaryOutput out = new BinaryOutput(store.getOutputStream());
+        long[] positions = new long[100];
+        for (int i = 0; i < 100; i++) {
+            out.writeInt(i);
+            positions[i] = out.getPosition();
+            out.writeBytes(sequence(i));
+        }
+        return positions;
+    }
+
+    /**
+     * Checks the fields written by writeRecords
+     * @param fields    fields read
+     */
+    private static void assertRecords(List<BinaryInputData> fields) {
+        assertEquals(200, fields.size());
+        for (int i = 0; i < 100; i++) {
+            assertField(fields.get(i * 2), MagicMarker.INT, i);
+            assertArrayEquals(sequence(i), fields.get(i * 2 + 1).getBytesValue());
+        }
+    }
+
+    @Test
+    public void writeAndReadAcrossChunks() {
+        try (OffHeapStore store = new OffHeapStore(37)) {
+            long[] positions = writeRecords(store);
+            assertEquals(100 * 5 + 100 * 5 + 99 * 50, store.size());
+            assertRecords(readAll(new BinaryInput(store.getInputStream(0L))));
+            for (int i = 0; i < 100; i++) {
+                BinaryInputData data = store.read(positions[i]);
+                assertEquals(positions[i], data.getPosition());
+                assertArrayEquals(sequence(i), data.getBytesValue());
+            }
+            assertNull(store.read(store.size()));
+            assertNull(store.read(-1L));
+        }
+    }
+
+    @Test
+    public void snapshotToFile() throws IOException {
+        File file = this.folder.newFile();
+        try (OffHeapStore store = new OffHeapStore(64)) {
+            writeRecords(store);
+            assertTrue(store.writeTo(file));
+            assertEquals(store.size(), file.length());
+        }
+        try (OffHeapStore store = new OffHeapStore(100)) {
+            assertTrue(store.loadFrom(file));
+            assertEquals(file.length(), store.size());
+            assertRecords(readAll(new BinaryInput(store.getInputStream(0L))));
+        }
+    }
+
+    @Test
+    public void closeReleasesAndStoreIsReusable() {
+        OffHeapStore store = new OffHeapStore(50);
+        writeRecords(store);
+        assertTrue(store.chunks.size() > 1);
+        store.close();
+        assertEquals(0L, store.size());
+        assertEquals(0, store.chunks.size());
+        writeRecords(store);
+        assertRecords(readAll(new BinaryInput(store.getInputStream(0L))));
+        store.clear();
+        assertEquals(0L, store.size());
+        assertTrue(store.chunks.size() > 1);
+        store.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidChunkSize() {
+        new OffHeapStore(0);
+    }
+
+}
@@ -0,0 +1,112 @@
+package com.github.nilscoding.seqdatastore;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static com.github.nilscoding.seqdatastore.TestSupport.assertField;
+import static com.github.nilscoding.seqdatastore.TestSupport.readAll;
+import static com.github.nilscoding.seqdatastore.TestSupport.sequence;
+
+/**
+ * Tests of deduplicated data: writing references and resolving them with the different positional readers
+ * @author NilsCoding
+ */
+public class ReferenceTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Writes 10 records of two repeated 200-byte payloads, a 10-byte payload and an INT
+     * @param out   binary output
+     */
+    private static void writeRecords(BinaryOutput out) {
+        out.setDeduplicationSize(64);
+        for (int i = 0; i < 10; i++) {
+            out.writeBytes(sequence(200)).writeCustomInt(sequence(200)).writeBytes(sequence(10)).writeInt(i);
+        }
+    }
+
+    /**
+     * Checks the fields written by writeRecords
+     * @param fields    fields read
+     */
+    private static void assertRecords(List<BinaryInputData> fields) {
+        assertEquals(40, fields.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(MagicMarker.BYTES, fields.get(i * 4).getType());
+            assertArrayEquals(sequence(200), (byte[])fields.get(i * 4).getValue());
+            assertEquals(MagicMarker.CUSTOM_INT, fields.get(i * 4 + 1).getType());
+            assertArrayEquals(sequence(200), (byte[])fields.get(i * 4 + 1).getValue());
+            assertArrayEquals(sequence(10), (byte[])fields.get(i * 4 + 2).getValue());
+            assertField(fields.get(i * 4 + 3), MagicMarker.INT, i);
+        }
+    }
+
+    @Test
+    public void referencesAreWritten() {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        writeRecords(new BinaryOutput(bos));
+        byte[] data = bos.toByteArray();
+        assertTrue(data.length < 2 * 205 + 10 * 40);
+        // without a reader, references are returned as UNKNOWN
+        int references = 0;
+        for (BinaryInputData field : readAll(new BinaryInput(new ByteArrayInputStream(data)))) {
+            if (field.getType() == MagicMarker.UNKNOWN) {
+                references++;
+            }
+        }
+        // repeats of both 200-byte payloads are references, the 10-byte payload is below the threshold
+        assertEquals(18, references);
+    }
+
+    @Test
+    public void referencesAreResolvedFromFile() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        writeRecords(new BinaryOutput(bos));
+        try (FileInputStream in = new FileInputStream(TestSupport.write(this.folder, bos.toByteArray()))) {
+            assertRecords(readAll(new BinaryInput(in, 0L, 16)));
+        }
+    }
+
+    @Test
+    public void referencesAreResolvedFromByteArray() {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        writeRecords(new BinaryOutput(bos));
+        byte[] data = bos.toByteArray();
+        BinaryInput input = new BinaryInput(new TestSupport.TrickleInputStream(new ByteArrayInputStream(data)), 0L, 16);
+        input.setReferenceReader(PositionalReaders.of(data));
+        assertRecords(readAll(input));
+        // next() reports the type of the original field
+        BinaryInput next = new BinaryInput(new ByteArrayInputStream(data));
+        next.setReferenceReader(PositionalReaders.of(data));
+        int count = 0;
+        while (next.next()) {
+            assertTrue(next.getLastType() != MagicMarker.UNKNOWN);
+            count++;
+        }
+        assertEquals(40, count);
+    }
+
+    @Test
+    public void referencesAreResolvedFromOffHeapStore() {
+        try (OffHeapStore store = new OffHeapStore(100)) {
+            writeRecords(new BinaryOutput(store.getOutputStream()));
+            List<BinaryInputData> fields = readAll(new BinaryInput(store.getInputStream(0L)));
+            assertRecords(fields);
+            BinaryInputData reference = store.read(fields.get(37).getPosition());
+            assertEquals(MagicMarker.CUSTOM_INT, reference.getType());
+            assertArrayEquals(sequence(200), (byte[])reference.getValue());
+        }
+    }
+
+}
@@ -0,0 +1,145 @@
+package com.github.nilscoding.seqdatastore;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static com.github.nilscoding.seqdatastore.TestSupport.assertField;
+import static com.github.nilscoding.seqdatastore.TestSupport.readAll;
+import static com.github.nilscoding.seqdatastore.TestSupport.sequence;
+
+/**
+ * Tests of SharedRing with RingWriter and RingReader: wrap-around, a full ring, reopening and concurrent use
+ * @author NilsCoding
+ */
+public class SharedRingTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void messagesWrapAround() throws IOException {
+        try (SharedRing ring = new SharedRing(this.folder.newFile(), 64)) {
+            assertEquals(64, ring.getCapacity());
+            RingWriter writer = new RingWriter(ring);
+            RingReader reader = new RingReader(ring);
+            assertNull(reader.poll());
+            // 4 + 5 + 9 + 12 = 30 bytes per message, so messages wrap at the end of the ring
+            for (int i = 0; i < 50; i++) {
+                writer.getOutput().writeInt(i).writeLong(i * 3L).writeBytes(sequence(7));
+                assertTrue(writer.publish());
+                List<BinaryInputData> fields = readAll(reader.poll());
+                assertEquals(3, fields.size());
+                assertField(fields.get(0), MagicMarker.INT, i);
+                assertField(fields.get(1), MagicMarker.LONG, i * 3L);
+                assertArrayEquals(sequence(7), fields.get(2).getBytesValue());
+                assertNull(reader.poll());
+            }
+        }
+    }
+
+    @Test
+    public void fullRingTimesOut() throws IOException {
+        try (SharedRing ring = new SharedRing(this.folder.newFile(), 64)) {
+            RingWriter writer = new RingWriter(ring);
+            writer.setWriteTimeout(50L);
+            writer.getOutput().writeBytes(sequence(40));
+            assertTrue(writer.publish());
+            // no reader releases the first message
+            long start = System.nanoTime();
+            writer.getOutput().writeBytes(sequence(20));
+            assertFalse(writer.publish());
+            assertTrue(System.nanoTime() - start >= 50000000L);
+            // larger than the ring
+            writer.getOutput().writeBytes(sequence(100));
+            assertFalse(writer.publish());
+            assertFalse(writer.publish());
+            RingReader reader = new RingReader(ring);
+            assertArrayEquals(sequence(40), reader.poll().read().getBytesValue());
+            assertNull(reader.poll());
+            writer.getOutput().writeBytes(sequence(20));
+            assertTrue(writer.publish());
+            assertArrayEquals(sequence(20), reader.poll().read().getBytesValue());
+        }
+    }
+
+    @Test
+    public void reopeningKeepsCapacityAndSequences() throws IOException {
+        File file = this.folder.newFile();
+        try (SharedRing ring = new SharedRing(file, 100)) {
+            assertEquals(128, ring.getCapacity());
+            RingWriter writer = new RingWriter(ring);
+            writer.getOutput().writeInt(1);
+            writer.publish();
+            writer.getOutput().writeInt(2);
+            writer.publish();
+            RingReader reader = new RingReader(ring);
+            reader.poll().read();
+            reader.release();
+        }
+        try (SharedRing ring = new SharedRing(file, 1024)) {
+            assertEquals(128, ring.getCapacity());
+            RingReader reader = new RingReader(ring);
+            assertField(reader.poll().read(), MagicMarker.INT, 2);
+            assertNull(reader.poll());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidCapacity() throws IOException {
+        new SharedRing(this.folder.newFile(), SharedRing.MAX_CAPACITY + 1).close();
+    }
+
+    @Test
+    public void concurrentProducerAndConsumer() throws Exception {
+        final File file = this.folder.newFile();
+        final int count = 20000;
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        try (SharedRing ring = new SharedRing(file, 256)) {
+            Thread producer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try (SharedRing producerRing = new SharedRing(file, 256)) {
+                        RingWriter writer = new RingWriter(producerRing);
+                        for (int i = 0; i < count; i++) {
+                            writer.getOutput().writeInt(i).writeBytes(sequence(i % 50));
+                            if (!writer.publish()) {
+                                throw new IllegalStateException("message " + i + " not published");
+                            }
+                        }
+                    } catch (Throwable t) {
+                        failure.set(t);
+                    }
+                }
+            });
+            producer.start();
+            RingReader reader = new RingReader(ring);
+            int received = 0;
+            long deadline = System.currentTimeMillis() + 30000L;
+            while ((received < count) && (failure.get() == null) && (System.currentTimeMillis() < deadline)) {
+                BinaryInput input = reader.poll();
+                if (input == null) {
+                    Thread.yield();
+                    continue;
+                }
+                assertField(input.read(), MagicMarker.INT, received);
+                assertArrayEquals(sequence(received % 50), input.read().getBytesValue());
+                assertNull(input.read());
+                received++;
+            }
+            producer.join();
+            assertNull(failure.get());
+            assertEquals(count, received);
+        }
+    }
+
+}
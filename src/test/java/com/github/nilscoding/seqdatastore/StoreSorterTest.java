@@ -0,0 +1,149 @@
+package com.github.nilscoding.seqdatastore;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of StoreSorter: in-memory sort, spilled runs with multi-pass merges and failing inputs
+ * @author NilsCoding
+ */
+public class StoreSorterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void sortInMemory() throws IOException {
+        List<File> inputs = Arrays.asList(this.writeRecords(0, 500), this.writeRecords(1, 500));
+        File output = this.folder.newFile();
+        assertTrue(new StoreSorter(3, 0).sort(inputs, output));
+        assertSorted(output, 1000);
+    }
+
+    @Test
+    public void sortWithRunsAndMultiPassMerge() throws IOException {
+        List<File> inputs = Arrays.asList(this.writeRecords(2, 700), this.writeRecords(3, 300));
+        File output = this.folder.newFile();
+        StoreSorter sorter = new StoreSorter(3, 0);
+        sorter.setRunBytes(4096L);
+        sorter.setBufferSize(64);
+        sorter.setMergeFanIn(3);
+        sorter.setTempDirectory(this.folder.getRoot());
+        assertTrue(sorter.sort(inputs, output));
+        assertSorted(output, 1000);
+        // only input and output files remain, all runs are deleted
+        assertEquals(3, this.folder.getRoot().listFiles().length);
+    }
+
+    @Test
+    public void mergeMoreInputsThanFanIn() throws IOException {
+        List<File> inputs = new ArrayList<>();
+        StoreSorter sorter = new StoreSorter(3, 0);
+        sorter.setMergeFanIn(2);
+        for (int i = 0; i < 7; i++) {
+            File sorted = this.folder.newFile();
+            assertTrue(sorter.sort(Arrays.asList(this.writeRecords(10 + i, 100)), sorted));
+            inputs.add(sorted);
+        }
+        File output = this.folder.newFile();
+        assertTrue(sorter.merge(inputs, output));
+        assertSorted(output, 700);
+    }
+
+    @Test
+    public void runSizeIsEstimatedFromDecodedFields() {
+        StoreSorter sorter = new StoreSorter(3, 0);
+        BinaryInputData[] record = new BinaryInputData[]{
+            new BinaryInputData(0L, MagicMarker.INT, 1),
+            new BinaryInputData(5L, MagicMarker.LONG, 2L),
+            new BinaryInputData(14L, MagicMarker.STRING, "abc")
+        };
+        // 27 encoded bytes, but the record array, three data objects and their values on the heap
+        assertEquals(32L + 3L * 40L + 16L + 24L + 24L + 24L, sorter.recordSize(record));
+    }
+
+    @Test
+    public void incompleteRecordFails() throws IOException {
+        File input = this.folder.newFile();
+        try (OutputStream out = new FileOutputStream(input)) {
+            new BinaryOutput(out).writeInt(2).writeLong(2L).writeString("two")
+                    .writeInt(1).writeLong(1L);
+        }
+        StoreSorter sorter = new StoreSorter(3, 0);
+        assertFalse(sorter.sort(Arrays.asList(input), this.folder.newFile()));
+        assertFalse(sorter.merge(Arrays.asList(input), this.folder.newFile()));
+    }
+
+    @Test
+    public void invalidDataFails() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        new BinaryOutput(bos).writeInt(2).writeLong(2L).writeString("two");
+        byte[] data = bos.toByteArray();
+        File input = TestSupport.write(this.folder, Arrays.copyOf(data, data.length - 1));
+        assertFalse(new StoreSorter(3, 0).sort(Arrays.asList(input), this.folder.newFile()));
+    }
+
+    /**
+     * Writes records of a random INT key, the input number as LONG and the index as STRING
+     * @param seed  random seed and input number
+     * @param count number of records
+     * @return  file
+     * @throws IOException  if writing fails
+     */
+    private File writeRecords(int seed, int count) throws IOException {
+        Random random = new Random(seed);
+        File file = this.folder.newFile();
+        try (OutputStream out = new FileOutputStream(file)) {
+            BinaryOutput binOut = new BinaryOutput(out);
+            for (int i = 0; i < count; i++) {
+                binOut.writeInt(random.nextInt(50)).writeLong(seed).writeString(Integer.toString(i));
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Checks that the records are sorted by key and that equal keys of an input keep their order
+     * @param file  sorted file
+     * @param count expected number of records
+     * @throws IOException  if reading fails
+     */
+    private static void assertSorted(File file, int count) throws IOException {
+        try (FileInputStream in = new FileInputStream(file)) {
+            RecordInput input = new RecordInput(in, 3);
+            BinaryInputData[] last = null;
+            int records = 0;
+            BinaryInputData[] record;
+            while ((record = input.readRecord()) != null) {
+                assertEquals(MagicMarker.INT, record[0].getType());
+                if (last != null) {
+                    int result = StoreSorter.compareData(last[0], record[0]);
+                    assertTrue(result <= 0);
+                    if ((result == 0) && (last[1].getLongValue() == record[1].getLongValue())) {
+                        assertTrue(Integer.parseInt(last[2].getStringValue()) < Integer.parseInt(record[2].getStringValue()));
+                    }
+                }
+                last = record;
+                records++;
+            }
+            assertFalse(input.isIncomplete());
+            assertEquals(count, records);
+        }
+    }
+
+}
@@ -0,0 +1,111 @@
+package com.github.nilscoding.seqdatastore;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Helpers shared by the tests
+ * @author NilsCoding
+ */
+final class TestSupport {
+
+    private TestSupport() {
+    }
+
+    /**
+     * Reads all fields of an input
+     * @param input binary input
+     * @return  fields
+     */
+    static List<BinaryInputData> readAll(BinaryInput input) {
+        List<BinaryInputData> fields = new ArrayList<>();
+        BinaryInputData data;
+        while ((data = input.read()) != null) {
+            fields.add(data);
+        }
+        return fields;
+    }
+
+    /**
+     * Checks type and value of a field
+     * @param data  field
+     * @param type  expected type
+     * @param value expected value
+     */
+    static void assertField(BinaryInputData data, byte type, Object value) {
+        assertEquals(type, data.getType());
+        assertEquals(value, data.getValue());
+    }
+
+    /**
+     * Writes data to a new file of a temporary folder
+     * @param folder    temporary folder
+     * @param data      data
+     * @return  file
+     * @throws IOException  if writing fails
+     */
+    static File write(TemporaryFolder folder, byte[] data) throws IOException {
+        File file = folder.newFile();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(data);
+        }
+        return file;
+    }
+
+    /**
+     * Returns bytes which differ by length and index
+     * @param length    length
+     * @return  bytes
+     */
+    static byte[] sequence(int length) {
+        byte[] b = new byte[length];
+        for (int i = 0; i < length; i++) {
+            b[i] = (byte)(i * 7 + length);
+        }
+        return b;
+    }
+
+    /**
+     * Repeats a string
+     * @param s     string
+     * @param count number of repetitions
+     * @return  repeated string
+     */
+    static String repeat(String s, int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(s);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Input stream returning at most 3 bytes per read and skipping nothing, to exercise short reads
+     */
+    static class TrickleInputStream extends FilterInputStream {
+
+        TrickleInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return super.read(b, off, Math.min(len, 3));
+        }
+
+        @Override
+        public long skip(long n) {
+            return 0L;
+        }
+
+    }
+
+}